@@ -1,6 +1,13 @@
+import infra.chains.footprint.ChainsFootprint
 import infra.chains.impl.BandFactoryImpl
+import infra.chains.impl.BeanAtomCopier
+import infra.chains.impl.ChainDirtyTrackingImpl
 import infra.chains.impl.ChainFactoryImpl
+import infra.chains.impl.ChainHistoryImpl
+import infra.chains.impl.ChainSearchImpl
 import infra.chains.impl.ChainsManagerImpl
+import org.springframework.jmx.export.MBeanExporter
+import org.springframework.jmx.support.MBeanServerFactoryBean
 
 class InfraChainsGrailsPlugin {
     // the plugin version
@@ -48,6 +55,22 @@ Brief summary/description of the plugin.
         chainsManager(ChainsManagerImpl)
         chainFactory(ChainFactoryImpl)
         bandFactory(BandFactoryImpl)
+        atomCopier(BeanAtomCopier)
+        chainHistory(ChainHistoryImpl, ref("chainsManager"))
+        chainSearch(ChainSearchImpl, ref("chainsManager"))
+        chainDirtyTracking(ChainDirtyTrackingImpl, ref("chainsManager"))
+
+        // Footprint listens to all the chains, so it's exposed only on demand
+        if (application.config.infra.chains.jmx.enabled) {
+            chainsFootprint(ChainsFootprint, ref("chainsManager"))
+            chainsMBeanServer(MBeanServerFactoryBean) {
+                locateExistingServerIfPossible = true
+            }
+            chainsMBeanExporter(MBeanExporter) {
+                server = ref("chainsMBeanServer")
+                beans = ["infra.chains:type=ChainsFootprint": ref("chainsFootprint")]
+            }
+        }
     }
 
     def doWithDynamicMethods = { ctx ->
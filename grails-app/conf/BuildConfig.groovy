@@ -28,6 +28,8 @@ grails.project.dependency.resolution = {
         grailsRepo "http://mvn.quonb.org/repo", "quonb"
     }
     dependencies {
+        compile "com.fasterxml.jackson.core:jackson-core:2.2.0"
+
         test("org.spockframework:spock-grails-support:0.7-groovy-2.0") {
             export = false
         }
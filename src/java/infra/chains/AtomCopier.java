@@ -0,0 +1,15 @@
+package infra.chains;
+
+import infra.ca.Atom;
+
+/**
+ * Makes a copy of an atom for a forked chain, when a fork band stops reading atoms of its source band.
+ * A copy is owned by the fork, so it must not share contents with the original atom, which would be
+ * deleted along with either chain
+ *
+ * @author alari
+ * @since 10/19/26 7:10 PM
+ */
+public interface AtomCopier<A extends Atom> {
+    public A copy(A atom);
+}
@@ -0,0 +1,54 @@
+package infra.chains;
+
+import infra.ca.ex.CreativeAtomException;
+
+import java.util.List;
+
+/**
+ * Tracks bands and atoms of chains changed since they were saved, so that only the changed ones are stored
+ * or rendered again. A chain is tracked since it's marked clean for the first time; a chain that was never
+ * marked clean is dirty as a whole
+ *
+ * @author alari
+ * @since 10/19/26 11:10 PM
+ */
+public interface ChainDirtyTracking<C extends Chain<B>, B extends Band> {
+    /**
+     * Marks a chain clean, e.g. after it was loaded or saved, and starts tracking its changes
+     *
+     * @param chain
+     */
+    public void clearDirty(C chain);
+
+    /**
+     * Marks a band and its atoms dirty, must be called after a band was changed bypassing the manager
+     *
+     * @param chain
+     * @param band
+     */
+    public void markDirty(C chain, B band);
+
+    /**
+     * Returns bands added or changed since a chain was marked clean. Removed bands are not listed,
+     * order of bands is to be saved with a chain
+     *
+     * @param chain
+     * @return dirty bands in chain order, or all bands if a chain is not tracked
+     */
+    public List<B> getDirtyBands(C chain);
+
+    /**
+     * Prepares atoms added or moved since a chain was marked clean to render update
+     *
+     * @param chain
+     * @throws CreativeAtomException
+     */
+    public void forUpdateDirty(C chain) throws CreativeAtomException;
+
+    /**
+     * Stops tracking a chain, it's dirty as a whole until marked clean again
+     *
+     * @param chain
+     */
+    public void untrack(C chain);
+}
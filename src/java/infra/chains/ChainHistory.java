@@ -0,0 +1,59 @@
+package infra.chains;
+
+/**
+ * Records changes of chains made through a ChainsManager and is able to revert them.
+ * Only tracked chains are recorded, one step per ChainsManager call that changed a chain
+ *
+ * @author alari
+ * @since 10/19/26 3:30 PM
+ */
+public interface ChainHistory<C extends Chain> {
+    /**
+     * Starts recording changes of a chain
+     *
+     * @param chain
+     */
+    public void track(C chain);
+
+    /**
+     * Stops recording changes of a chain and drops its history
+     *
+     * @param chain
+     */
+    public void untrack(C chain);
+
+    /**
+     * Reverts the last recorded change of a chain
+     *
+     * @param chain
+     * @return false if there's nothing to undo
+     */
+    public boolean undo(C chain);
+
+    /**
+     * Reapplies the last reverted change of a chain
+     *
+     * @param chain
+     * @return false if there's nothing to redo
+     */
+    public boolean redo(C chain);
+
+    /**
+     * @param chain
+     * @return true if undo is possible
+     */
+    public boolean canUndo(C chain);
+
+    /**
+     * @param chain
+     * @return true if redo is possible
+     */
+    public boolean canRedo(C chain);
+
+    /**
+     * Drops undo and redo history of a chain, it's still tracked
+     *
+     * @param chain
+     */
+    public void clearHistory(C chain);
+}
@@ -0,0 +1,41 @@
+package infra.chains;
+
+import infra.chains.ex.NotFoundInChainException;
+import infra.chains.search.AtomMatch;
+
+import java.util.List;
+
+/**
+ * Full-text search over atoms of chains. An index of a chain is built on the first search in it
+ * and then follows changes made through a ChainsManager
+ *
+ * @author alari
+ * @since 10/19/26 4:50 PM
+ */
+public interface ChainSearch<C extends Chain> {
+    /**
+     * Finds atoms containing all the words of a query
+     *
+     * @param chain
+     * @param query
+     * @return matches in chain order
+     */
+    public List<AtomMatch> search(C chain, String query);
+
+    /**
+     * Reindexes an atom after its text was changed
+     *
+     * @param chain
+     * @param atomId
+     * @throws NotFoundInChainException
+     *
+     */
+    public void reindexAtom(C chain, String atomId) throws NotFoundInChainException;
+
+    /**
+     * Drops an index of a chain and stops following its changes
+     *
+     * @param chain
+     */
+    public void untrack(C chain);
+}
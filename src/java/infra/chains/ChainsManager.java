@@ -10,6 +10,7 @@ import infra.ca.StringIdContainer;
 import infra.ca.ex.CreativeAtomException;
 import infra.chains.ex.NotFoundInChainException;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -189,4 +190,62 @@ public interface ChainsManager<C extends Chain<B>, B extends Band<A>, A extends
      */
     public void setBandStyle(C chain, String bandId, Map<String,String> style) throws NotFoundInChainException;
 
+    /**
+     * Moves a run of atoms to another position in a chain, splitting and merging bands only at the run boundaries
+     *
+     * @param chain
+     * @param fromPosition   first atom of the run
+     * @param toPosition     position right after the last atom of the run
+     * @param moveToPosition position among the atoms left after the run is cut out
+     */
+    public void moveRange(C chain, int fromPosition, int toPosition, int moveToPosition) throws InstantiationException, IllegalAccessException;
+
+    /**
+     * Moves a run of atoms from one chain to another. Atoms and bands with ids taken in a target chain get new ids.
+     * Within a single chain it's the same as moveRange; a run placed inside itself is left as is
+     *
+     * @param sourceChain
+     * @param fromPosition first atom of the run
+     * @param toPosition   position right after the last atom of the run
+     * @param targetChain
+     * @param position     position in a target chain to place the run to
+     */
+    public void splice(C sourceChain, int fromPosition, int toPosition, C targetChain, int position) throws InstantiationException, IllegalAccessException;
+
+    /**
+     * Makes a new chain with the same contents, at the cost of a band object per band. Bands get new ids.
+     * A fork band reads atoms of its source band until it's changed through the manager or the source atoms
+     * are deleted, then it gets copies of the atoms with the same ids. An atom read from a fork before that
+     * may be the source's one, so it should be found again by its id after a change
+     *
+     * @param chain
+     * @return a new chain
+     */
+    public C fork(C chain) throws InstantiationException, IllegalAccessException;
+
+    /**
+     * Returns bands of a type in chain order
+     *
+     * @param chain
+     * @param type
+     * @return lazy iterator
+     */
+    public Iterator<B> getBandsByType(C chain, String type);
+
+    /**
+     * Returns atoms of a type in chain order
+     *
+     * @param chain
+     * @param type
+     * @return lazy iterator
+     */
+    public Iterator<A> getAtomsByType(C chain, String type);
+
+    /**
+     * Drops cached indexes of a chain, must be called after a chain was changed bypassing the manager
+     *
+     * @param chain
+     */
+    public void reindex(C chain);
+
 }
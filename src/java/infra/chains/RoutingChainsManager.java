@@ -0,0 +1,56 @@
+package infra.chains;
+
+import infra.ca.Atom;
+import infra.ca.AtomPush;
+
+/**
+ * ChainsManager of a node in a group of nodes. Each chain is owned by a single node chosen by consistent
+ * hashing of its key; mutations are forwarded to the owner, which applies them one by one and sends
+ * the changes to replicas on other nodes. Reads are served from a local replica.
+ * Chains that were not registered are managed locally
+ *
+ * @author alari
+ * @since 10/19/26 10:30 PM
+ */
+public interface RoutingChainsManager<C extends Chain<B>, B extends Band<A>, A extends Atom, AP extends AtomPush> extends ChainsManager<C, B, A, AP> {
+    /**
+     * Registers a local replica of a chain. Replicas of a chain are expected to start from the same state
+     *
+     * @param key   chain key, the same on every node
+     * @param chain
+     */
+    public void register(String key, C chain);
+
+    /**
+     * Forgets a local replica
+     *
+     * @param key
+     */
+    public void unregister(String key);
+
+    /**
+     * @param key
+     * @return local replica, or null if there's none
+     */
+    public C getChain(String key);
+
+    /**
+     * @param key
+     * @return name of a node owning the chain
+     */
+    public String getOwner(String key);
+
+    /**
+     * Adds a node. Chains this node owned and the new one is to own are handed over to it
+     *
+     * @param node
+     */
+    public void nodeJoined(String node);
+
+    /**
+     * Removes a node. If it's this node, its chains are handed over to their new owners
+     *
+     * @param node
+     */
+    public void nodeLeft(String node);
+}
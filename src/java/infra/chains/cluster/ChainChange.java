@@ -0,0 +1,108 @@
+package infra.chains.cluster;
+
+import infra.ca.Atom;
+import infra.chains.event.ChainEvent;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A chain event sent to replicas. Bands are referred to by ids; only an added atom and a new band's
+ * type and styles are carried along, as a replica has everything else
+ *
+ * @author alari
+ * @since 10/19/26 10:15 PM
+ */
+public class ChainChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ChainEvent.Type type;
+    private final Atom atom;
+    private final String fromBandId;
+    private final int fromPosition;
+    private final String toBandId;
+    private final String toBandType;
+    private final HashMap<String, String> styles;
+    private final int toPosition;
+
+    private ChainChange(ChainEvent.Type type, Atom atom, String fromBandId, int fromPosition,
+                        String toBandId, String toBandType, Map<String, String> styles, int toPosition) {
+        this.type = type;
+        this.atom = atom;
+        this.fromBandId = fromBandId;
+        this.fromPosition = fromPosition;
+        this.toBandId = toBandId;
+        this.toBandType = toBandType;
+        this.styles = styles == null ? null : new HashMap<String, String>(styles);
+        this.toPosition = toPosition;
+    }
+
+    /**
+     * @param event change made by an owner
+     * @return the change to be sent
+     */
+    public static ChainChange of(ChainEvent event) {
+        String fromBandId = event.getFromBand() == null ? null : event.getFromBand().getId();
+        String toBandId = event.getToBand() == null ? null : event.getToBand().getId();
+        switch (event.getType()) {
+            case ATOM_ADDED:
+                return new ChainChange(event.getType(), event.getAtom(), null, -1, toBandId, null, null, event.getToPosition());
+            case BAND_CREATED:
+            case BAND_SPLIT:
+                return new ChainChange(event.getType(), null, fromBandId, event.getFromPosition(),
+                        toBandId, event.getToBand().getType(), event.getToBand().getStyles(), event.getToPosition());
+            case BAND_RESTYLED:
+                return new ChainChange(event.getType(), null, null, -1, toBandId, null, event.getStyles(), -1);
+            default:
+                return new ChainChange(event.getType(), null, fromBandId, event.getFromPosition(), toBandId, null, null, event.getToPosition());
+        }
+    }
+
+    public String toString() {
+        return "ChainChange:" + type + (atom == null ? "" : ":" + atom.getId()) +
+                (fromBandId == null ? "" : " from " + fromBandId + ":" + fromPosition) +
+                (toBandId == null ? "" : " to " + toBandId + ":" + toPosition);
+    }
+
+    public ChainEvent.Type getType() {
+        return type;
+    }
+
+    /**
+     * @return added atom for ATOM_ADDED, null otherwise
+     */
+    public Atom getAtom() {
+        return atom;
+    }
+
+    public String getFromBandId() {
+        return fromBandId;
+    }
+
+    public int getFromPosition() {
+        return fromPosition;
+    }
+
+    public String getToBandId() {
+        return toBandId;
+    }
+
+    /**
+     * @return type of a new band for BAND_CREATED and BAND_SPLIT
+     */
+    public String getToBandType() {
+        return toBandType;
+    }
+
+    /**
+     * @return styles of a new band, or new styles for BAND_RESTYLED
+     */
+    public Map<String, String> getStyles() {
+        return styles;
+    }
+
+    public int getToPosition() {
+        return toPosition;
+    }
+}
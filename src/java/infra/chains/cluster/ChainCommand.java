@@ -0,0 +1,122 @@
+package infra.chains.cluster;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A ChainsManager mutation forwarded to the node owning a chain. Chain arguments are replaced
+ * with {@link ChainRef} keys, to be resolved to the owner's replicas. A command counts nodes it was
+ * forwarded by, so that nodes with different views of the ring can't pass it around forever
+ *
+ * @author alari
+ * @since 10/19/26 10:15 PM
+ */
+public class ChainCommand implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * ChainsManager mutations that may be routed, with their arguments
+     */
+    public static enum Operation {
+        // chain, atom
+        ADD_ATOM,
+        // chain, atom push
+        PUSH_ATOM,
+        // chain, atom push, band id
+        PUSH_ATOM_TO_BAND,
+        // chain, atom id
+        REMOVE_ATOM,
+        // chain, atom id
+        DELETE_ATOM,
+        // chain
+        DELETE,
+        // chain, atom id, position
+        MOVE_IN_BAND,
+        // chain, band id, position
+        MOVE_BAND,
+        // chain, atom id, band id
+        MOVE_TO_BAND,
+        // chain, atom id, band id, position
+        MOVE_TO_BAND_POSITION,
+        // chain, atom id, position
+        MOVE_ATOM,
+        // chain, band id, styles
+        SET_BAND_STYLE,
+        // chain, from position, to position, move to position
+        MOVE_RANGE,
+        // source chain, from position, to position, target chain, position
+        SPLICE
+    }
+
+    private final String chainKey;
+    private final Operation operation;
+    private final Object[] arguments;
+    private final int hops;
+
+    /**
+     * @param chainKey  key of a chain the command is routed by
+     * @param operation
+     * @param arguments arguments, with chains replaced by refs
+     */
+    public ChainCommand(String chainKey, Operation operation, Object[] arguments) {
+        this(chainKey, operation, arguments, 0);
+    }
+
+    private ChainCommand(String chainKey, Operation operation, Object[] arguments, int hops) {
+        this.chainKey = chainKey;
+        this.operation = operation;
+        this.arguments = arguments;
+        this.hops = hops;
+    }
+
+    /**
+     * @return the same command, passed one more time
+     */
+    public ChainCommand forwarded() {
+        return new ChainCommand(chainKey, operation, arguments, hops + 1);
+    }
+
+    public String getChainKey() {
+        return chainKey;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return number of times the command was forwarded
+     */
+    public int getHops() {
+        return hops;
+    }
+
+    public String toString() {
+        return operation + Arrays.toString(arguments);
+    }
+
+    /**
+     * Chain argument of a command
+     */
+    public static class ChainRef implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+
+        public ChainRef(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String toString() {
+            return "Chain:" + key;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package infra.chains.cluster;
+
+import infra.chains.Chain;
+
+import java.util.List;
+
+/**
+ * Receiving side of a node, called by a {@link ChainTransport}
+ *
+ * @param <C> chains the node keeps
+ *
+ * @author alari
+ * @since 10/19/26 10:20 PM
+ */
+public interface ChainNode<C extends Chain<?>> {
+    /**
+     * Applies a mutation to a chain owned by this node, or forwards it to the current owner
+     *
+     * @param command
+     * @return result of a ChainsManager method
+     * @throws IllegalStateException if the command was forwarded too many times
+     * @throws Exception             thrown by a ChainsManager method
+     */
+    public Object execute(ChainCommand command) throws Exception;
+
+    /**
+     * Applies changes made by an owner to a local replica
+     *
+     * @param chainKey
+     * @param changes changes of a single ChainsManager call, in order
+     */
+    public void applyChanges(String chainKey, List<ChainChange> changes);
+
+    /**
+     * Takes over a chain this node became the owner of. A replica the node already has is brought
+     * to the received state
+     *
+     * @param chainKey
+     * @param chain    state of a chain on its previous owner
+     */
+    public void receive(String chainKey, C chain);
+}
@@ -0,0 +1,45 @@
+package infra.chains.cluster;
+
+import infra.chains.Chain;
+
+import java.util.List;
+
+/**
+ * Delivers commands, changes and chains between nodes. A transport is expected to deliver changes
+ * of a chain to each node in the order they were sent. Commands and changes are serializable; atoms they carry
+ * are expected to be serializable too for remote transports
+ *
+ * @param <C> chains handed over between nodes
+ *
+ * @author alari
+ * @since 10/19/26 10:20 PM
+ */
+public interface ChainTransport<C extends Chain<?>> {
+    /**
+     * Executes a command on a node and waits for the result
+     *
+     * @param node
+     * @param command
+     * @return result of a ChainsManager method
+     * @throws Exception thrown by a ChainsManager method on a node
+     */
+    public Object forward(String node, ChainCommand command) throws Exception;
+
+    /**
+     * Sends changes made by an owner to a replica node
+     *
+     * @param node
+     * @param chainKey
+     * @param changes
+     */
+    public void replicate(String node, String chainKey, List<ChainChange> changes);
+
+    /**
+     * Hands a chain over to its new owner
+     *
+     * @param node
+     * @param chainKey
+     * @param chain
+     */
+    public void transfer(String node, String chainKey, C chain);
+}
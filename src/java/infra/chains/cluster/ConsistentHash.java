@@ -0,0 +1,118 @@
+package infra.chains.cluster;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable ring of nodes. Each node is placed on the ring at a number of virtual points; a key is owned
+ * by the node of the first point following the key hash. Adding or removing a node changes owners only
+ * for keys next to its points
+ *
+ * @author alari
+ * @since 10/19/26 10:10 PM
+ */
+public class ConsistentHash {
+    private final int virtualNodes;
+    private final Set<String> nodes;
+    private final TreeMap<Long, String> ring;
+
+    public ConsistentHash() {
+        this(128);
+    }
+
+    /**
+     * @param virtualNodes number of ring points per node, more points give more even distribution
+     */
+    public ConsistentHash(int virtualNodes) {
+        this(virtualNodes, new TreeSet<String>(), new TreeMap<Long, String>());
+    }
+
+    private ConsistentHash(int virtualNodes, Set<String> nodes, TreeMap<Long, String> ring) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Number of virtual nodes should be positive");
+        }
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableSet(nodes);
+        this.ring = ring;
+    }
+
+    /**
+     * @param node
+     * @return a ring with the node added
+     */
+    public ConsistentHash withNode(String node) {
+        if (nodes.contains(node)) return this;
+        Set<String> n = new TreeSet<String>(nodes);
+        n.add(node);
+        TreeMap<Long, String> r = new TreeMap<Long, String>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            long point = hash(node + "#" + i);
+            String taken = r.get(point);
+            // On a collision the point goes to the smaller name, so the ring doesn't depend on join order
+            if (taken == null || node.compareTo(taken) < 0) {
+                r.put(point, node);
+            }
+        }
+        return new ConsistentHash(virtualNodes, n, r);
+    }
+
+    /**
+     * @param node
+     * @return a ring with the node removed
+     */
+    public ConsistentHash withoutNode(String node) {
+        if (!nodes.contains(node)) return this;
+        ConsistentHash rebuilt = new ConsistentHash(virtualNodes);
+        for (String n : nodes) {
+            if (!n.equals(node)) rebuilt = rebuilt.withNode(n);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * @param key
+     * @return node owning the key
+     * @throws IllegalStateException if the ring is empty
+     */
+    public String owner(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("No nodes to own " + key);
+        }
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash(key));
+        return point == null ? ring.firstEntry().getValue() : point.getValue();
+    }
+
+    /**
+     * @return all the nodes on the ring
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public String toString() {
+        return "ConsistentHash" + nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche, so that close strings land far apart
+     *
+     * @param s
+     * @return hash
+     */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,48 @@
+package infra.chains.cluster;
+
+import infra.chains.Chain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transport between nodes living in a single JVM, calls them directly
+ *
+ * @author alari
+ * @since 10/19/26 10:25 PM
+ */
+public class InProcessTransport<C extends Chain<?>> implements ChainTransport<C> {
+    private final Map<String, ChainNode<C>> nodes = new ConcurrentHashMap<String, ChainNode<C>>();
+
+    public void register(String node, ChainNode<C> endpoint) {
+        nodes.put(node, endpoint);
+    }
+
+    public void unregister(String node) {
+        nodes.remove(node);
+    }
+
+    public Object forward(String node, ChainCommand command) throws Exception {
+        return endpoint(node).execute(command);
+    }
+
+    public void replicate(String node, String chainKey, List<ChainChange> changes) {
+        ChainNode<C> endpoint = nodes.get(node);
+        if (endpoint != null) {
+            endpoint.applyChanges(chainKey, changes);
+        }
+    }
+
+    public void transfer(String node, String chainKey, C chain) {
+        endpoint(node).receive(chainKey, chain);
+    }
+
+    private ChainNode<C> endpoint(String node) {
+        ChainNode<C> endpoint = nodes.get(node);
+        if (endpoint == null) {
+            throw new IllegalStateException("Node " + node + " is not reachable");
+        }
+        return endpoint;
+    }
+}
@@ -0,0 +1,176 @@
+package infra.chains.event;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+
+import java.util.Map;
+
+/**
+ * Typed change of a chain. Meaning of bands and positions depends on the type:
+ * <ul>
+ * <li>ATOM_ADDED: atom is placed into toBand at toPosition</li>
+ * <li>ATOM_REMOVED: atom is removed from fromBand at fromPosition</li>
+ * <li>ATOM_MOVED: atom is moved from fromBand at fromPosition to toBand at toPosition</li>
+ * <li>BAND_CREATED: toBand is inserted into a chain at toPosition, empty; its atoms follow as ATOM_ADDED or ATOM_MOVED events</li>
+ * <li>BAND_REMOVED: fromBand is removed from a chain at fromPosition; it still holds atoms
+ * only if it leaves for another chain</li>
+ * <li>BAND_MOVED: band is moved in a chain from fromPosition to toPosition</li>
+ * <li>BAND_SPLIT: atoms of fromBand starting from fromPosition are moved into a new band toBand
+ * placed into a chain at toPosition; no events are fired for every moved atom</li>
+ * <li>BAND_MERGED: atoms of fromBand are appended to toBand starting from toPosition,
+ * fromBand is removed from a chain at fromPosition</li>
+ * <li>BAND_RESTYLED: styles of toBand are changed from previousStyles to styles</li>
+ * </ul>
+ * Positions of atoms are positions in their bands, positions of bands are positions in a chain.
+ * Events of a call are fired in causal order, so applying them one by one to a copy of a chain
+ * reproduces the change: e.g. a band emptied by a move is removed after the atom is moved out of it.
+ *
+ * @author alari
+ * @since 10/19/26 5:30 PM
+ */
+public class ChainEvent {
+    public static enum Type {
+        ATOM_ADDED, ATOM_REMOVED, ATOM_MOVED,
+        BAND_CREATED, BAND_REMOVED, BAND_MOVED, BAND_SPLIT, BAND_MERGED, BAND_RESTYLED
+    }
+
+    private final Type type;
+    private final Chain chain;
+    private final Atom atom;
+    private final Band fromBand;
+    private final int fromPosition;
+    private final Band toBand;
+    private final int toPosition;
+    private final Map<String, String> previousStyles;
+    private final Map<String, String> styles;
+
+    public ChainEvent(Type type, Chain chain, Atom atom, Band fromBand, int fromPosition, Band toBand, int toPosition) {
+        this(type, chain, atom, fromBand, fromPosition, toBand, toPosition, null, null);
+    }
+
+    public ChainEvent(Type type, Chain chain, Atom atom, Band fromBand, int fromPosition, Band toBand, int toPosition,
+                      Map<String, String> previousStyles, Map<String, String> styles) {
+        this.type = type;
+        this.chain = chain;
+        this.atom = atom;
+        this.fromBand = fromBand;
+        this.fromPosition = fromPosition;
+        this.toBand = toBand;
+        this.toPosition = toPosition;
+        this.previousStyles = previousStyles;
+        this.styles = styles;
+    }
+
+    public static ChainEvent atomAdded(Chain chain, Atom atom, Band band, int position) {
+        return new ChainEvent(Type.ATOM_ADDED, chain, atom, null, -1, band, position);
+    }
+
+    public static ChainEvent atomRemoved(Chain chain, Atom atom, Band band, int position) {
+        return new ChainEvent(Type.ATOM_REMOVED, chain, atom, band, position, null, -1);
+    }
+
+    public static ChainEvent atomMoved(Chain chain, Atom atom, Band fromBand, int fromPosition, Band toBand, int toPosition) {
+        return new ChainEvent(Type.ATOM_MOVED, chain, atom, fromBand, fromPosition, toBand, toPosition);
+    }
+
+    public static ChainEvent bandCreated(Chain chain, Band band, int position) {
+        return new ChainEvent(Type.BAND_CREATED, chain, null, null, -1, band, position);
+    }
+
+    public static ChainEvent bandRemoved(Chain chain, Band band, int position) {
+        return new ChainEvent(Type.BAND_REMOVED, chain, null, band, position, null, -1);
+    }
+
+    public static ChainEvent bandMoved(Chain chain, Band band, int fromPosition, int toPosition) {
+        return new ChainEvent(Type.BAND_MOVED, chain, null, band, fromPosition, band, toPosition);
+    }
+
+    public static ChainEvent bandSplit(Chain chain, Band band, int atPosition, Band newBand, int newBandPosition) {
+        return new ChainEvent(Type.BAND_SPLIT, chain, null, band, atPosition, newBand, newBandPosition);
+    }
+
+    public static ChainEvent bandMerged(Chain chain, Band band, int bandPosition, Band intoBand, int atPosition) {
+        return new ChainEvent(Type.BAND_MERGED, chain, null, band, bandPosition, intoBand, atPosition);
+    }
+
+    public static ChainEvent bandRestyled(Chain chain, Band band, Map<String, String> previousStyles, Map<String, String> styles) {
+        return new ChainEvent(Type.BAND_RESTYLED, chain, null, null, -1, band, -1, previousStyles, styles);
+    }
+
+    /**
+     * @param chain
+     * @return the same change of another chain, or detached from a chain if null
+     */
+    public ChainEvent withChain(Chain chain) {
+        return new ChainEvent(type, chain, atom, fromBand, fromPosition, toBand, toPosition, previousStyles, styles);
+    }
+
+    /**
+     * @return change that reverts this one, if applied right after it
+     */
+    public ChainEvent inverse() {
+        switch (type) {
+            case ATOM_ADDED:
+                return atomRemoved(chain, atom, toBand, toPosition);
+            case ATOM_REMOVED:
+                return atomAdded(chain, atom, fromBand, fromPosition);
+            case ATOM_MOVED:
+                return atomMoved(chain, atom, toBand, toPosition, fromBand, fromPosition);
+            case BAND_CREATED:
+                return bandRemoved(chain, toBand, toPosition);
+            case BAND_REMOVED:
+                return bandCreated(chain, fromBand, fromPosition);
+            case BAND_MOVED:
+                return bandMoved(chain, toBand, toPosition, fromPosition);
+            case BAND_SPLIT:
+                return bandMerged(chain, toBand, toPosition, fromBand, fromPosition);
+            case BAND_MERGED:
+                return bandSplit(chain, toBand, toPosition, fromBand, fromPosition);
+            default:
+                return bandRestyled(chain, toBand, styles, previousStyles);
+        }
+    }
+
+    public String toString() {
+        return "ChainEvent:" + type + (atom == null ? "" : ":" + atom.getId()) +
+                (fromBand == null ? "" : " from " + fromBand.getId() + ":" + fromPosition) +
+                (toBand == null ? "" : " to " + toBand.getId() + ":" + toPosition);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Chain getChain() {
+        return chain;
+    }
+
+    public Atom getAtom() {
+        return atom;
+    }
+
+    public Band getFromBand() {
+        return fromBand;
+    }
+
+    public int getFromPosition() {
+        return fromPosition;
+    }
+
+    public Band getToBand() {
+        return toBand;
+    }
+
+    public int getToPosition() {
+        return toPosition;
+    }
+
+    public Map<String, String> getPreviousStyles() {
+        return previousStyles;
+    }
+
+    public Map<String, String> getStyles() {
+        return styles;
+    }
+}
@@ -0,0 +1,45 @@
+package infra.chains.event;
+
+import infra.chains.Chain;
+
+/**
+ * Delivers chain changes to listeners. A listener registered for a single chain costs nothing to other
+ * chains: events are built only for chains someone listens to. A chain listener must not hold a strong
+ * reference to its chain, or the chain is never collected
+ *
+ * @author alari
+ * @since 10/19/26 11:55 PM
+ */
+public interface ChainEventSource<C extends Chain> {
+    /**
+     * Registers a listener of changes of all chains
+     *
+     * @param listener
+     * @param batched  if true, listener gets all the events of a call when it's over
+     */
+    public void addChainListener(ChainListener listener, boolean batched);
+
+    /**
+     * Unregisters a listener of changes of all chains
+     *
+     * @param listener
+     */
+    public void removeChainListener(ChainListener listener);
+
+    /**
+     * Registers a listener of a single chain changes
+     *
+     * @param chain
+     * @param listener
+     * @param batched  if true, listener gets all the events of a call for this chain when it's over
+     */
+    public void addChainListener(C chain, ChainListener listener, boolean batched);
+
+    /**
+     * Unregisters a listener of a single chain changes
+     *
+     * @param chain
+     * @param listener
+     */
+    public void removeChainListener(C chain, ChainListener listener);
+}
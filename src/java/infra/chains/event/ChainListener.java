@@ -0,0 +1,18 @@
+package infra.chains.event;
+
+import java.util.List;
+
+/**
+ * Receives changes made to chains by a ChainsManager. A listener is registered either as synchronous,
+ * to get every event as soon as it happens, or as batched, to get all the events of a ChainsManager call
+ * when the call is over
+ *
+ * @author alari
+ * @since 10/19/26 5:30 PM
+ */
+public interface ChainListener {
+    /**
+     * @param events a single event for synchronous listeners, all the events of a call for batched ones
+     */
+    public void onChainEvents(List<ChainEvent> events);
+}
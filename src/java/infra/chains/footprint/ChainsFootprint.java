@@ -0,0 +1,169 @@
+package infra.chains.footprint;
+
+import infra.chains.Chain;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainEventSource;
+import infra.chains.event.ChainListener;
+import infra.chains.util.WeakIdentityMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps footprint estimations of chains changed through a ChainsManager, or tracked explicitly.
+ * Chains are held weakly; a chain is estimated again only if it was changed since the last estimation,
+ * and only when statistics are read.
+ * Listening to all the chains makes every ChainsManager call build events, so the plugin registers
+ * the footprint only if infra.chains.jmx.enabled is set in config
+ *
+ * @author alari
+ * @since 10/19/26 9:45 PM
+ */
+public class ChainsFootprint implements ChainsFootprintMBean, ChainListener {
+    private static final Log log = LogFactory.getLog(ChainsFootprint.class);
+
+    private final FootprintEstimator estimator;
+
+    private final WeakIdentityMap<Chain, Tracked> chains = new WeakIdentityMap<Chain, Tracked>();
+
+    private int largestChainsCount = 10;
+
+    public ChainsFootprint(ChainEventSource chainsManager) {
+        this(chainsManager, new FootprintEstimator());
+    }
+
+    @SuppressWarnings("unchecked")
+    public ChainsFootprint(ChainEventSource chainsManager, FootprintEstimator estimator) {
+        this.estimator = estimator;
+        if (chainsManager != null) {
+            chainsManager.addChainListener(this, true);
+        }
+    }
+
+    /**
+     * Starts tracking a chain not changed through a ChainsManager, e.g. just loaded
+     *
+     * @param chain
+     */
+    public void track(Chain chain) {
+        changed(chain);
+    }
+
+    public void onChainEvents(List<ChainEvent> events) {
+        Chain last = null;
+        for (ChainEvent e : events) {
+            if (e.getChain() != last) {
+                last = e.getChain();
+                changed(last);
+            }
+        }
+    }
+
+    public void setLargestChainsCount(int largestChainsCount) {
+        this.largestChainsCount = largestChainsCount;
+    }
+
+    public long getTotalBytes() {
+        long bytes = 0;
+        for (Footprint f : refresh().values()) bytes += f.getBytes();
+        return bytes;
+    }
+
+    public int getChainsCount() {
+        return refresh().size();
+    }
+
+    public String[] getLargestChains() {
+        List<Map.Entry<Chain, Footprint>> all = new ArrayList<Map.Entry<Chain, Footprint>>(refresh().entrySet());
+        Collections.sort(all, new Comparator<Map.Entry<Chain, Footprint>>() {
+            public int compare(Map.Entry<Chain, Footprint> a, Map.Entry<Chain, Footprint> b) {
+                long x = a.getValue().getBytes(), y = b.getValue().getBytes();
+                return x > y ? -1 : x < y ? 1 : 0;
+            }
+        });
+        String[] largest = new String[Math.min(largestChainsCount, all.size())];
+        for (int i = 0; i < largest.length; i++) {
+            Chain chain = all.get(i).getKey();
+            largest[i] = chain.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(chain)) + ": " + all.get(i).getValue();
+        }
+        return largest;
+    }
+
+    public double getAverageBandsPerChain() {
+        Map<Chain, Footprint> all = refresh();
+        long bands = 0;
+        for (Footprint f : all.values()) bands += f.getBands();
+        return all.isEmpty() ? 0 : (double) bands / all.size();
+    }
+
+    public int getMaxBandsPerChain() {
+        int max = 0;
+        for (Footprint f : refresh().values()) max = Math.max(max, f.getBands());
+        return max;
+    }
+
+    public double getAverageAtomsPerBand() {
+        long bands = 0, atoms = 0;
+        for (Footprint f : refresh().values()) {
+            bands += f.getBands();
+            atoms += f.getAtoms();
+        }
+        return bands == 0 ? 0 : (double) atoms / bands;
+    }
+
+    public int getMaxAtomsPerBand() {
+        int max = 0;
+        for (Footprint f : refresh().values()) max = Math.max(max, f.getLargestBand());
+        return max;
+    }
+
+    /**
+     * Estimates chains changed since the last call. A chain being changed concurrently keeps
+     * its previous estimation and is tried again next time
+     *
+     * @return footprints of tracked chains
+     */
+    @SuppressWarnings("unchecked")
+    synchronized Map<Chain, Footprint> refresh() {
+        Map<Chain, Footprint> current = new IdentityHashMap<Chain, Footprint>();
+        for (Chain chain : chains.keys()) {
+            Tracked tracked = chains.get(chain);
+            if (tracked == null) continue;
+            if (tracked.changed) {
+                tracked.changed = false;
+                try {
+                    tracked.footprint = estimator.estimate(chain);
+                } catch (RuntimeException concurrentChange) {
+                    tracked.changed = true;
+                    log.warn("Chain estimation failed, keeping its previous footprint", concurrentChange);
+                }
+            }
+            if (tracked.footprint != null) {
+                current.put(chain, tracked.footprint);
+            }
+        }
+        return current;
+    }
+
+    private void changed(Chain chain) {
+        synchronized (chains) {
+            Tracked tracked = chains.get(chain);
+            if (tracked == null) {
+                chains.put(chain, new Tracked());
+            } else {
+                tracked.changed = true;
+            }
+        }
+    }
+
+    private static class Tracked {
+        volatile boolean changed = true;
+        volatile Footprint footprint;
+    }
+}
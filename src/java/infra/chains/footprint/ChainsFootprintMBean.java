@@ -0,0 +1,29 @@
+package infra.chains.footprint;
+
+/**
+ * JMX view of heap taken by chains
+ *
+ * @author alari
+ * @since 10/19/26 9:40 PM
+ */
+public interface ChainsFootprintMBean {
+    /**
+     * @return estimated bytes taken by all tracked chains
+     */
+    public long getTotalBytes();
+
+    public int getChainsCount();
+
+    /**
+     * @return largest chains by estimated bytes, one line per chain
+     */
+    public String[] getLargestChains();
+
+    public double getAverageBandsPerChain();
+
+    public int getMaxBandsPerChain();
+
+    public double getAverageAtomsPerBand();
+
+    public int getMaxAtomsPerBand();
+}
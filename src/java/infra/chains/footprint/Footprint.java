@@ -0,0 +1,56 @@
+package infra.chains.footprint;
+
+/**
+ * Estimated heap footprint of a single chain
+ *
+ * @author alari
+ * @since 10/19/26 9:20 PM
+ */
+public class Footprint {
+    private final long bytes;
+    private final int bands;
+    private final long atoms;
+    private final int largestBand;
+    private final boolean sampled;
+
+    Footprint(long bytes, int bands, long atoms, int largestBand, boolean sampled) {
+        this.bytes = bytes;
+        this.bands = bands;
+        this.atoms = atoms;
+        this.largestBand = largestBand;
+        this.sampled = sampled;
+    }
+
+    /**
+     * @return estimated bytes taken by a chain, its bands, lists, style maps, ids and atoms
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public long getAtoms() {
+        return atoms;
+    }
+
+    /**
+     * @return number of atoms in the largest band
+     */
+    public int getLargestBand() {
+        return largestBand;
+    }
+
+    /**
+     * @return true if bytes were extrapolated from a sample of bands or atoms
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public String toString() {
+        return bytes + " bytes, " + bands + " bands, " + atoms + " atoms" + (sampled ? " (sampled)" : "");
+    }
+}
@@ -0,0 +1,185 @@
+package infra.chains.footprint;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+import infra.chains.impl.CompactChain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Estimates heap taken by chains, assuming a 64-bit JVM with compressed references. Band and atom counts
+ * are exact; for chains with more bands than a sample size, bytes are measured on every n-th band and
+ * scaled up, and the same is done for atoms of large bands. Style maps shared by bands are counted for
+ * each band, atom types are considered to be shared constants. Array lists are counted with the capacity
+ * they grow to when filled one by one; a {@link CompactChain} is counted as its flat arrays and band views
+ *
+ * @author alari
+ * @since 10/19/26 9:25 PM
+ */
+public class FootprintEstimator {
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+
+    private static final long CHAIN = align(HEADER + REFERENCE);
+    private static final long BAND = align(HEADER + 4 * REFERENCE);
+    private static final long ATOM = align(HEADER + 6 * REFERENCE);
+    private static final long LIST = align(HEADER + 2 * 4 + REFERENCE);
+    private static final long LINKED_NODE = align(HEADER + 3 * REFERENCE);
+    private static final long MAP = align(HEADER + 4 * 4 + 4 * REFERENCE);
+    private static final long MAP_ENTRY = align(HEADER + 4 + 3 * REFERENCE);
+    private static final long STRING = align(HEADER + 2 * 4 + REFERENCE);
+    // CompactBands storage: counts, modCount and seven arrays
+    private static final long COMPACT_BANDS = align(HEADER + 4 * 4 + 7 * REFERENCE);
+    // CompactBand view with its atoms list
+    private static final long COMPACT_BAND = align(HEADER + 4 + 6 * REFERENCE) + align(HEADER + 4 + REFERENCE);
+    // Per band arrays of CompactBands: ids, type ordinals, styles, ends and views
+    private static final int COMPACT_BAND_ARRAYS = 5;
+
+    private int sampleSize = 256;
+
+    public FootprintEstimator() {
+    }
+
+    /**
+     * @param sampleSize number of bands, and atoms in a band, to measure before extrapolating
+     */
+    public FootprintEstimator(int sampleSize) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size should be positive");
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Estimates chain footprint. Walks all the bands once to count atoms, measures bytes on a sample
+     *
+     * @param chain
+     * @return footprint estimation
+     */
+    public Footprint estimate(Chain<? extends Band<? extends Atom>> chain) {
+        List<? extends Band<? extends Atom>> bands = chain.getBands();
+        if (bands == null) {
+            return new Footprint(CHAIN, 0, 0, 0, false);
+        }
+        boolean compact = (Chain<?>) chain instanceof CompactChain;
+        int bandsCount = bands.size();
+        int stride = Math.max(1, bandsCount / sampleSize);
+        boolean sampled = stride > 1;
+
+        long atoms = 0;
+        int largestBand = 0;
+        int sampledBands = 0;
+        long sampledAtoms = 0;
+        long bandBytes = 0;
+        long atomBytes = 0;
+
+        int i = 0;
+        for (Band<? extends Atom> band : bands) {
+            List<? extends Atom> bandAtoms = band.getAtoms();
+            int size = bandAtoms == null ? 0 : bandAtoms.size();
+            atoms += size;
+            largestBand = Math.max(largestBand, size);
+            if (i++ % stride != 0) continue;
+
+            ++sampledBands;
+            bandBytes += (compact ? COMPACT_BAND : BAND + list(bandAtoms, size)) + string(band.getId()) + map(band.getStyles());
+            if (size > sampleSize) {
+                int atomStride = size / sampleSize;
+                long measured = 0;
+                int count = 0;
+                if (bandAtoms instanceof RandomAccess) {
+                    for (int a = 0; a < size; a += atomStride) {
+                        measured += atom(bandAtoms.get(a));
+                        ++count;
+                    }
+                } else {
+                    int a = 0;
+                    for (Atom atom : bandAtoms) {
+                        if (a++ % atomStride != 0) continue;
+                        measured += atom(atom);
+                        ++count;
+                    }
+                }
+                atomBytes += measured * size / count;
+                sampled = true;
+            } else if (bandAtoms != null) {
+                for (Atom atom : bandAtoms) atomBytes += atom(atom);
+            }
+            sampledAtoms += size;
+        }
+
+        long bytes = CHAIN + (compact ? compact(bandsCount, atoms) : list(bands, bandsCount));
+        if (sampledBands > 0) {
+            bytes += bandBytes * bandsCount / sampledBands;
+        }
+        if (sampledAtoms > 0) {
+            bytes += atomBytes * atoms / sampledAtoms;
+        }
+        return new Footprint(bytes, bandsCount, atoms, largestBand, sampled);
+    }
+
+    private static long atom(Atom atom) {
+        return atom == null ? 0 : ATOM + string(atom.getId()) + string(atom.getText());
+    }
+
+    private static long list(List<?> list, int size) {
+        if (list == null) return 0;
+        if (list instanceof RandomAccess) {
+            return LIST + array(arrayListCapacity(size));
+        }
+        return LIST + LINKED_NODE * (size + 1);
+    }
+
+    /**
+     * Storage of a compact chain: per band arrays and a single atoms array, both doubled when full
+     */
+    private static long compact(int bandsCount, long atomsCount) {
+        return COMPACT_BANDS + COMPACT_BAND_ARRAYS * array(doubledCapacity(4, bandsCount)) + array(doubledCapacity(16, atomsCount));
+    }
+
+    /**
+     * @return capacity of an array list after adding elements one by one
+     */
+    private static long arrayListCapacity(long size) {
+        if (size == 0) return 0;
+        long capacity = 10;
+        while (capacity < size) capacity += capacity >> 1;
+        return capacity;
+    }
+
+    private static long doubledCapacity(long initial, long size) {
+        long capacity = initial;
+        while (capacity < size) capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * @return bytes of an array of references or ints
+     */
+    private static long array(long length) {
+        return align(HEADER + 4 + REFERENCE * length);
+    }
+
+    private static long map(Map<String, String> map) {
+        if (map == null) return 0;
+        int size = map.size();
+        int capacity = 16;
+        while (capacity * 3 / 4 < size) capacity <<= 1;
+        long bytes = MAP + align(HEADER + 4 + (long) REFERENCE * capacity) + MAP_ENTRY * size;
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            bytes += string(e.getKey()) + string(e.getValue());
+        }
+        return bytes;
+    }
+
+    private static long string(String s) {
+        return s == null ? 0 : STRING + align(HEADER + 4 + 2L * s.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,72 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.chains.AtomCopier;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies an atom property by property into a new instance of its class. Collection and map properties
+ * get collections of their own, so a copy may be changed without changing the original; beans kept
+ * in properties are still shared. Enough for atoms keeping their contents in properties; atoms
+ * referencing external contents or mutable beans need a copier which copies them
+ *
+ * @author alari
+ * @since 10/19/26 7:10 PM
+ */
+public class BeanAtomCopier<A extends Atom> implements AtomCopier<A> {
+    @Override
+    @SuppressWarnings("unchecked")
+    public A copy(A atom) {
+        A copy = (A) BeanUtils.instantiateClass(atom.getClass());
+        BeanUtils.copyProperties(atom, copy);
+        for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(atom.getClass())) {
+            Method read = property.getReadMethod();
+            Method write = property.getWriteMethod();
+            if (read == null || write == null) continue;
+            Object value = ReflectionUtils.invokeMethod(read, copy);
+            if (value instanceof Collection || value instanceof Map) {
+                ReflectionUtils.invokeMethod(write, copy, copyOf(value));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copies a collection or a map into a new instance of its class, or of a general one if it can't be built
+     *
+     * @param value collection or map
+     * @return a copy
+     */
+    @SuppressWarnings("unchecked")
+    private static Object copyOf(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> map;
+            try {
+                map = (Map<Object, Object>) BeanUtils.instantiateClass(value.getClass());
+            } catch (BeanInstantiationException e) {
+                map = new LinkedHashMap<Object, Object>();
+            }
+            map.putAll((Map<Object, Object>) value);
+            return map;
+        }
+        Collection<Object> collection;
+        try {
+            collection = (Collection<Object>) BeanUtils.instantiateClass(value.getClass());
+        } catch (BeanInstantiationException e) {
+            collection = value instanceof Set ? new LinkedHashSet<Object>() : new ArrayList<Object>();
+        }
+        collection.addAll((Collection<Object>) value);
+        return collection;
+    }
+}
@@ -0,0 +1,177 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.ca.AtomsManager;
+import infra.ca.ex.CreativeAtomException;
+import infra.chains.Band;
+import infra.chains.Chain;
+import infra.chains.ChainDirtyTracking;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainEventSource;
+import infra.chains.event.ChainListener;
+import infra.chains.util.WeakIdentityMap;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bands and atoms changed since a chain was marked clean, fed with chain events. Every tracked chain gets
+ * a listener of its own, so chains which are not tracked cost nothing. Changes of replicas made by other
+ * nodes are tracked too, if the source of events is a RoutingChainsManager.
+ * Tracked bands and atoms are kept, so a chain should be untracked when it's closed
+ *
+ * @author alari
+ * @since 10/19/26 11:20 PM
+ */
+public class ChainDirtyTrackingImpl<C extends Chain<B>, B extends Band<A>, A extends Atom> implements ChainDirtyTracking<C, B> {
+    private final ChainEventSource<C> chainsManager;
+
+    @Autowired
+    private AtomsManager<A, ?> atomsManager;
+
+    private final WeakIdentityMap<C, Dirty<B, A>> chains = new WeakIdentityMap<C, Dirty<B, A>>();
+
+    public ChainDirtyTrackingImpl(ChainEventSource<C> chainsManager) {
+        this.chainsManager = chainsManager;
+    }
+
+    public void clearDirty(C chain) {
+        synchronized (chains) {
+            Dirty<B, A> dirty = chains.get(chain);
+            if (dirty == null) {
+                dirty = new Dirty<B, A>();
+                chains.put(chain, dirty);
+                chainsManager.addChainListener(chain, dirty, false);
+            } else {
+                dirty.clear();
+            }
+        }
+    }
+
+    public void markDirty(C chain, B band) {
+        Dirty<B, A> dirty = chains.get(chain);
+        if (dirty == null) return;
+        synchronized (dirty) {
+            dirty.bands.add(band);
+            dirty.wholeBands.add(band);
+        }
+    }
+
+    public List<B> getDirtyBands(C chain) {
+        Dirty<B, A> dirty = chains.get(chain);
+        if (dirty == null) {
+            return chain.getBands() == null ? new ArrayList<B>() : new ArrayList<B>(chain.getBands());
+        }
+        return bands(chain, dirty);
+    }
+
+    public void forUpdateDirty(C chain) throws CreativeAtomException {
+        Dirty<B, A> dirty = chains.get(chain);
+        if (dirty == null) {
+            if (chain.getBands() == null) return;
+            for (B b : chain.getBands()) for (A a : b.getAtoms()) atomsManager.forUpdate(a);
+            return;
+        }
+        for (A a : atoms(chain, dirty)) atomsManager.forUpdate(a);
+    }
+
+    public void untrack(C chain) {
+        Dirty<B, A> dirty;
+        synchronized (chains) {
+            dirty = chains.remove(chain);
+        }
+        if (dirty != null) {
+            chainsManager.removeChainListener(chain, dirty);
+        }
+    }
+
+    /**
+     * @param chain tracked chain
+     * @param dirty
+     * @return dirty bands in chain order
+     */
+    private List<B> bands(C chain, Dirty<B, A> dirty) {
+        List<B> bands = new ArrayList<B>();
+        if (chain.getBands() == null) return bands;
+        synchronized (dirty) {
+            if (dirty.bands.isEmpty()) return bands;
+            for (B b : chain.getBands()) {
+                if (dirty.bands.contains(b)) bands.add(b);
+            }
+        }
+        return bands;
+    }
+
+    /**
+     * @param chain tracked chain
+     * @param dirty
+     * @return dirty atoms still in a chain, in chain order
+     */
+    private List<A> atoms(C chain, Dirty<B, A> dirty) {
+        List<A> atoms = new ArrayList<A>();
+        for (B b : bands(chain, dirty)) {
+            synchronized (dirty) {
+                boolean whole = dirty.wholeBands.contains(b);
+                for (A a : b.getAtoms()) {
+                    if (whole || dirty.atoms.contains(a)) atoms.add(a);
+                }
+            }
+        }
+        return atoms;
+    }
+
+    /**
+     * Changes of a single chain, listens to its events. Must not reference the chain
+     */
+    private static class Dirty<B, A> implements ChainListener {
+        final Set<B> bands = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+        final Set<A> atoms = Collections.newSetFromMap(new IdentityHashMap<A, Boolean>());
+        // Bands all atoms of which are dirty: split, merged or marked explicitly
+        final Set<B> wholeBands = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+
+        @SuppressWarnings("unchecked")
+        public synchronized void onChainEvents(List<ChainEvent> events) {
+            for (ChainEvent e : events) {
+                switch (e.getType()) {
+                    case ATOM_REMOVED:
+                        atoms.remove((A) e.getAtom());
+                        bands.add((B) e.getFromBand());
+                        break;
+                    case BAND_REMOVED:
+                        bands.remove((B) e.getFromBand());
+                        wholeBands.remove((B) e.getFromBand());
+                        break;
+                    case BAND_MERGED:
+                        bands.remove((B) e.getFromBand());
+                        wholeBands.remove((B) e.getFromBand());
+                        wholeBands.add((B) e.getToBand());
+                        break;
+                    case BAND_SPLIT:
+                        bands.add((B) e.getFromBand());
+                        wholeBands.add((B) e.getToBand());
+                        break;
+                    case ATOM_MOVED:
+                    case BAND_MOVED:
+                        bands.add((B) e.getFromBand());
+                        break;
+                }
+                if (e.getToBand() != null) {
+                    bands.add((B) e.getToBand());
+                }
+                if (e.getAtom() != null && e.getType() != ChainEvent.Type.ATOM_REMOVED) {
+                    atoms.add((A) e.getAtom());
+                }
+            }
+        }
+
+        synchronized void clear() {
+            bands.clear();
+            atoms.clear();
+            wholeBands.clear();
+        }
+    }
+}
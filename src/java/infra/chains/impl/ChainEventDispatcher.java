@@ -0,0 +1,137 @@
+package infra.chains.impl;
+
+import infra.chains.Chain;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainListener;
+import infra.chains.util.WeakIdentityMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers chain events to listeners: to synchronous ones immediately, to batched ones on flush.
+ * Listeners are registered either for all chains or for a single chain
+ *
+ * @author alari
+ * @since 10/19/26 5:40 PM
+ */
+class ChainEventDispatcher {
+    private final Listeners global = new Listeners();
+    private final WeakIdentityMap<Chain, Listeners> chains = new WeakIdentityMap<Chain, Listeners>();
+    // Number of chains with listeners of their own, to skip the map lookup when there are none
+    private volatile int listenedChains = 0;
+    private final ThreadLocal<List<ChainEvent>> batch = new ThreadLocal<List<ChainEvent>>();
+
+    void addListener(ChainListener listener, boolean batched) {
+        global.add(listener, batched);
+    }
+
+    void removeListener(ChainListener listener) {
+        global.remove(listener);
+    }
+
+    void addListener(Chain chain, ChainListener listener, boolean batched) {
+        synchronized (chains) {
+            Listeners listeners = chains.get(chain);
+            if (listeners == null) {
+                listeners = new Listeners();
+                chains.put(chain, listeners);
+            }
+            listeners.add(listener, batched);
+            listenedChains = chains.size();
+        }
+    }
+
+    void removeListener(Chain chain, ChainListener listener) {
+        synchronized (chains) {
+            Listeners listeners = chains.get(chain);
+            if (listeners == null) return;
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                chains.remove(chain);
+            }
+            listenedChains = chains.size();
+        }
+    }
+
+    /**
+     * @param chain
+     * @return true if there's anyone to listen to the chain, so events should be built
+     */
+    boolean isActive(Chain chain) {
+        return !global.isEmpty() || listenedChains > 0 && chains.containsKey(chain);
+    }
+
+    void fire(ChainEvent event) {
+        Listeners own = listenedChains > 0 ? chains.get(event.getChain()) : null;
+        List<ChainEvent> single = null;
+        if (!global.sync.isEmpty()) {
+            single = Collections.singletonList(event);
+            for (ChainListener l : global.sync) l.onChainEvents(single);
+        }
+        if (own != null && !own.sync.isEmpty()) {
+            if (single == null) single = Collections.singletonList(event);
+            for (ChainListener l : own.sync) l.onChainEvents(single);
+        }
+        if (!global.batched.isEmpty() || own != null && !own.batched.isEmpty()) {
+            List<ChainEvent> events = batch.get();
+            if (events == null) {
+                events = new ArrayList<ChainEvent>();
+                batch.set(events);
+            }
+            events.add(event);
+        }
+    }
+
+    /**
+     * Delivers events collected by the current thread to batched listeners
+     */
+    void flush() {
+        List<ChainEvent> events = batch.get();
+        if (events == null) return;
+        batch.remove();
+        if (events.isEmpty()) return;
+        events = Collections.unmodifiableList(events);
+        for (ChainListener l : global.batched) l.onChainEvents(events);
+        if (listenedChains == 0) return;
+
+        // Events of a call mostly belong to a single chain
+        Map<Chain, List<ChainEvent>> byChain = new IdentityHashMap<Chain, List<ChainEvent>>(4);
+        for (ChainEvent e : events) {
+            List<ChainEvent> own = byChain.get(e.getChain());
+            if (own == null) {
+                own = new ArrayList<ChainEvent>();
+                byChain.put(e.getChain(), own);
+            }
+            own.add(e);
+        }
+        for (Map.Entry<Chain, List<ChainEvent>> e : byChain.entrySet()) {
+            Listeners own = chains.get(e.getKey());
+            if (own == null || own.batched.isEmpty()) continue;
+            List<ChainEvent> chainEvents = byChain.size() == 1 ? events : Collections.unmodifiableList(e.getValue());
+            for (ChainListener l : own.batched) l.onChainEvents(chainEvents);
+        }
+    }
+
+    private static class Listeners {
+        final List<ChainListener> sync = new CopyOnWriteArrayList<ChainListener>();
+        final List<ChainListener> batched = new CopyOnWriteArrayList<ChainListener>();
+
+        void add(ChainListener listener, boolean batched) {
+            (batched ? this.batched : sync).add(listener);
+        }
+
+        void remove(ChainListener listener) {
+            sync.remove(listener);
+            batched.remove(listener);
+        }
+
+        boolean isEmpty() {
+            return sync.isEmpty() && batched.isEmpty();
+        }
+    }
+}
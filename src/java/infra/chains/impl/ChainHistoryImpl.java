@@ -0,0 +1,204 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+import infra.chains.ChainHistory;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainListener;
+import infra.chains.util.WeakIdentityMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Records chain events of tracked chains, a step per ChainsManager call, and reverts a step by replaying
+ * inverse events in reverse order through the ChainsManager, so indexes and listeners of a chain stay in sync.
+ * A step costs O(changes it made); history of a chain is limited by a memory budget, the oldest steps
+ * are dropped first.
+ * A change that moves bands out to another chain, like splice, drops the history of the source chain:
+ * it can't be reverted for a single chain. Bands pasted into a chain are recorded as created and filled. Undoing deleteAtom puts the atom back, but its deleted contents are not restored.
+ * History keeps bands and atoms of a chain, so a chain should be untracked when it's closed
+ *
+ * @author alari
+ * @since 10/19/26 3:50 PM
+ */
+public class ChainHistoryImpl<C extends Chain<B>, B extends Band<A>, A extends Atom> implements ChainHistory<C> {
+    private static final long EVENT_BYTES = 64;
+
+    private final ChainsManagerImpl<C, B, A, ?> chainsManager;
+
+    private final WeakIdentityMap<C, History> histories = new WeakIdentityMap<C, History>();
+
+    private long historyBudget = 256 * 1024;
+
+    public ChainHistoryImpl(ChainsManagerImpl<C, B, A, ?> chainsManager) {
+        this.chainsManager = chainsManager;
+    }
+
+    /**
+     * Sets memory budget of undo history per chain
+     *
+     * @param historyBudget estimated bytes
+     */
+    public void setHistoryBudget(long historyBudget) {
+        this.historyBudget = historyBudget;
+    }
+
+    public void track(C chain) {
+        synchronized (histories) {
+            if (histories.containsKey(chain)) return;
+            History history = new History();
+            histories.put(chain, history);
+            chainsManager.addChainListener(chain, history.recorder, false);
+            chainsManager.addChainListener(chain, history.closer, true);
+        }
+    }
+
+    public void untrack(C chain) {
+        History history;
+        synchronized (histories) {
+            history = histories.remove(chain);
+        }
+        if (history != null) {
+            chainsManager.removeChainListener(chain, history.recorder);
+            chainsManager.removeChainListener(chain, history.closer);
+        }
+    }
+
+    public boolean undo(C chain) {
+        History history = histories.get(chain);
+        if (history == null) return false;
+        synchronized (history) {
+            if (history.undo.isEmpty()) return false;
+            List<ChainEvent> step = history.undo.pop();
+            List<ChainEvent> inverse = new ArrayList<ChainEvent>(step.size());
+            for (int i = step.size() - 1; i >= 0; i--) {
+                inverse.add(step.get(i).inverse());
+            }
+            replay(chain, history, inverse);
+            history.redo.push(step);
+            return true;
+        }
+    }
+
+    public boolean redo(C chain) {
+        History history = histories.get(chain);
+        if (history == null) return false;
+        synchronized (history) {
+            if (history.redo.isEmpty()) return false;
+            List<ChainEvent> step = history.redo.pop();
+            replay(chain, history, step);
+            history.undo.push(step);
+            return true;
+        }
+    }
+
+    public boolean canUndo(C chain) {
+        History history = histories.get(chain);
+        if (history == null) return false;
+        synchronized (history) {
+            return !history.undo.isEmpty();
+        }
+    }
+
+    public boolean canRedo(C chain) {
+        History history = histories.get(chain);
+        if (history == null) return false;
+        synchronized (history) {
+            return !history.redo.isEmpty();
+        }
+    }
+
+    public void clearHistory(C chain) {
+        History history = histories.get(chain);
+        if (history == null) return;
+        synchronized (history) {
+            history.clear();
+        }
+    }
+
+    /**
+     * Replays a step, history is dropped if a chain doesn't match it, e.g. was changed bypassing the manager
+     *
+     * @param chain
+     * @param history
+     * @param step
+     */
+    private void replay(C chain, History history, List<ChainEvent> step) {
+        history.replaying = true;
+        try {
+            chainsManager.replay(chain, step);
+        } catch (RuntimeException e) {
+            history.clear();
+            throw new IllegalStateException("Chain history doesn't match the chain, history is dropped", e);
+        } finally {
+            history.replaying = false;
+        }
+    }
+
+    /**
+     * Undo and redo stacks of a chain. Listeners must not reference a chain, so recorded events are detached
+     */
+    private class History {
+        private final Deque<List<ChainEvent>> undo = new ArrayDeque<List<ChainEvent>>();
+        private final Deque<List<ChainEvent>> redo = new ArrayDeque<List<ChainEvent>>();
+        private long cost = 0;
+
+        // Changes of the current call
+        private List<ChainEvent> pending = new ArrayList<ChainEvent>();
+        private boolean irreversible = false;
+        private volatile boolean replaying = false;
+
+        private final ChainListener recorder = new ChainListener() {
+            public void onChainEvents(List<ChainEvent> events) {
+                if (replaying) return;
+                synchronized (History.this) {
+                    for (ChainEvent e : events) {
+                        // A band with atoms goes to another chain
+                        if (e.getType() == ChainEvent.Type.BAND_REMOVED && !e.getFromBand().getAtoms().isEmpty()) {
+                            irreversible = true;
+                        }
+                        pending.add(e.withChain(null));
+                    }
+                }
+            }
+        };
+
+        private final ChainListener closer = new ChainListener() {
+            public void onChainEvents(List<ChainEvent> events) {
+                if (replaying) return;
+                synchronized (History.this) {
+                    if (irreversible) {
+                        clear();
+                    } else if (!pending.isEmpty()) {
+                        push(Collections.unmodifiableList(pending));
+                    }
+                    pending = new ArrayList<ChainEvent>();
+                    irreversible = false;
+                }
+            }
+        };
+
+        private void push(List<ChainEvent> step) {
+            for (List<ChainEvent> dropped : redo) {
+                cost -= dropped.size() * EVENT_BYTES;
+            }
+            redo.clear();
+            undo.push(step);
+            cost += step.size() * EVENT_BYTES;
+            while (cost > historyBudget && undo.size() > 1) {
+                cost -= undo.removeLast().size() * EVENT_BYTES;
+            }
+        }
+
+        private void clear() {
+            undo.clear();
+            redo.clear();
+            cost = 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+import infra.chains.ChainSearch;
+import infra.chains.ex.NotFoundInChainException;
+import infra.chains.search.AtomMatch;
+import infra.chains.search.ChainTextIndex;
+import infra.chains.util.WeakIdentityMap;
+
+import java.util.List;
+
+/**
+ * Keeps a text index of every searched chain, registered as a listener of the chain, so the index follows
+ * every change made through a ChainsManager, including undo and redo.
+ * An index keeps bands and atoms of a chain, so a chain should be untracked when it's closed
+ *
+ * @author alari
+ * @since 10/19/26 4:55 PM
+ */
+public class ChainSearchImpl<C extends Chain<B>, B extends Band<A>, A extends Atom> implements ChainSearch<C> {
+    private final ChainsManagerImpl<C, B, A, ?> chainsManager;
+
+    private final WeakIdentityMap<C, ChainTextIndex<B, A>> indexes = new WeakIdentityMap<C, ChainTextIndex<B, A>>();
+
+    public ChainSearchImpl(ChainsManagerImpl<C, B, A, ?> chainsManager) {
+        this.chainsManager = chainsManager;
+    }
+
+    public List<AtomMatch> search(C chain, String query) {
+        ChainTextIndex<B, A> index;
+        synchronized (indexes) {
+            index = indexes.get(chain);
+            if (index == null) {
+                index = new ChainTextIndex<B, A>();
+                chainsManager.addChainListener(chain, index, false);
+                index.rebuild(chain);
+                indexes.put(chain, index);
+            }
+        }
+        return index.search(chain, query);
+    }
+
+    public void reindexAtom(C chain, String atomId) throws NotFoundInChainException {
+        ChainTextIndex<B, A> index = indexes.get(chain);
+        if (index != null) {
+            index.update(chainsManager.getAtom(chain, atomId));
+        }
+    }
+
+    public void untrack(C chain) {
+        ChainTextIndex<B, A> index;
+        synchronized (indexes) {
+            index = indexes.remove(chain);
+        }
+        if (index != null) {
+            chainsManager.removeChainListener(chain, index);
+        }
+    }
+}
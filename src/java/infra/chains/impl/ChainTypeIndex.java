@@ -0,0 +1,178 @@
+package infra.chains.impl;
+
+import infra.chains.Band;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bands of a chain grouped by normalized type, in chain order. Every band gets a label growing along
+ * the chain, bands of a type are kept sorted by labels, so a lookup never rescans a chain.
+ * A band inserted or moved gets a label between the labels of its neighbours; if there's no room
+ * between them, the smallest aligned range of labels around is relabeled, which is sparse enough
+ * to hold the new bands (order maintenance by Bender et al.), so an update costs O(log n) amortized
+ *
+ * @author alari
+ * @since 10/19/26 6:30 PM
+ */
+class ChainTypeIndex<B extends Band> {
+    private static final int LABEL_BITS = 62;
+    private static final long LABEL_SPACE = 1L << LABEL_BITS;
+    // Distance between labels of bands appended to the end of a chain
+    private static final long GAP = 1L << 32;
+    // A range of 2^i labels may hold up to (2/T)^i bands after relabeling
+    private static final double DENSITY = 4.0 / 3;
+
+    private final Map<String, TreeMap<Long, B>> bands = new HashMap<String, TreeMap<Long, B>>();
+    private final Map<B, Long> labels = new IdentityHashMap<B, Long>();
+
+    ChainTypeIndex(List<B> chainBands) {
+        if (chainBands == null) return;
+        spread(chainBands, 0, chainBands.size(), -1, LABEL_SPACE);
+    }
+
+    /**
+     * Returns bands of a type in chain order
+     *
+     * @param type
+     * @return bands collection, not to be modified
+     */
+    Collection<B> get(String type) {
+        TreeMap<Long, B> typeBands = bands.get(normalize(type));
+        if (typeBands == null) return Collections.emptyList();
+        return Collections.unmodifiableCollection(typeBands.values());
+    }
+
+    /**
+     * Labels bands inserted into a chain
+     *
+     * @param chainBands current chain bands
+     * @param from       position of the first inserted band
+     * @param to         position after the last inserted band
+     */
+    void added(List<B> chainBands, int from, int to) {
+        ListIterator<B> it = chainBands.listIterator(to);
+        long high = it.hasNext() ? labels.get(it.next()) : LABEL_SPACE;
+        it = chainBands.listIterator(from);
+        long low = it.hasPrevious() ? labels.get(it.previous()) : -1;
+        if (high - low - 1 >= to - from) {
+            spread(chainBands, from, to, low, high);
+        } else {
+            relabel(chainBands, from, to, low >= 0 ? low : high);
+        }
+    }
+
+    /**
+     * Relabels bands moved in a chain
+     *
+     * @param chainBands current chain bands
+     * @param from       new position of the first moved band
+     * @param to         position after the last moved band
+     */
+    void moved(List<B> chainBands, int from, int to) {
+        ListIterator<B> it = chainBands.listIterator(from);
+        for (int i = from; i < to; i++) {
+            removed(it.next());
+        }
+        added(chainBands, from, to);
+    }
+
+    void removed(B band) {
+        Long label = labels.remove(band);
+        if (label == null) return;
+        String key = normalize(band.getType());
+        TreeMap<Long, B> typeBands = bands.get(key);
+        typeBands.remove(label);
+        if (typeBands.isEmpty()) {
+            bands.remove(key);
+        }
+    }
+
+    /**
+     * Gives labels to bands in an empty range between low and high labels
+     *
+     * @param chainBands
+     * @param from
+     * @param to
+     * @param low        label before the range, exclusive
+     * @param high       label after the range, exclusive
+     */
+    private void spread(List<B> chainBands, int from, int to, long low, long high) {
+        long step = (high - low) / (to - from + 1);
+        if (high == LABEL_SPACE) step = Math.min(step, GAP);
+        ListIterator<B> it = chainBands.listIterator(from);
+        long label = low;
+        for (int i = from; i < to; i++) {
+            label += step;
+            put(it.next(), label);
+        }
+    }
+
+    /**
+     * Finds the smallest aligned range of labels around the anchor which is sparse enough to include
+     * new bands, and spreads labels of all the bands in it evenly
+     *
+     * @param chainBands
+     * @param from       position of the first unlabeled band
+     * @param to         position after the last unlabeled band
+     * @param anchor     label of a neighbour of the unlabeled bands
+     */
+    private void relabel(List<B> chainBands, int from, int to, long anchor) {
+        ListIterator<B> left = chainBands.listIterator(from);
+        ListIterator<B> right = chainBands.listIterator(to);
+        int first = from, last = to;
+        double limit = 1;
+        for (int bits = 1; bits < LABEL_BITS; bits++) {
+            limit *= DENSITY;
+            long low = anchor & -(1L << bits);
+            long high = low + (1L << bits);
+            while (left.hasPrevious()) {
+                if (labels.get(left.previous()) < low) {
+                    left.next();
+                    break;
+                }
+                --first;
+            }
+            while (right.hasNext()) {
+                if (labels.get(right.next()) >= high) {
+                    right.previous();
+                    break;
+                }
+                ++last;
+            }
+            if (last - first <= limit) {
+                long step = (high - low) / (last - first);
+                ListIterator<B> it = chainBands.listIterator(first);
+                for (int i = 0; i < last - first; i++) {
+                    put(it.next(), low + i * step);
+                }
+                return;
+            }
+        }
+        spread(chainBands, 0, chainBands.size(), -1, LABEL_SPACE);
+    }
+
+    private void put(B band, long label) {
+        Long previous = labels.put(band, label);
+        String key = normalize(band.getType());
+        TreeMap<Long, B> typeBands = bands.get(key);
+        if (typeBands == null) {
+            typeBands = new TreeMap<Long, B>();
+            bands.put(key, typeBands);
+        } else if (previous != null && typeBands.get(previous) == band) {
+            // While a range is relabeled, a label may be already taken by another band of the range
+            typeBands.remove(previous);
+        }
+        typeBands.put(label, band);
+    }
+
+    private static String normalize(String type) {
+        return type == null ? null : type.toLowerCase();
+    }
+}
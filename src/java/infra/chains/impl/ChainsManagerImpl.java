@@ -6,31 +6,52 @@ import infra.ca.AtomsManager;
 import infra.ca.StringIdContainer;
 import infra.ca.ex.CreativeAtomException;
 import infra.chains.*;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainEventSource;
+import infra.chains.event.ChainListener;
 import infra.chains.ex.NotFoundInChainException;
 import infra.chains.ex.NotUniqueIdException;
+import infra.chains.util.WeakIdentityMap;
 import org.apache.commons.lang.RandomStringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * @author alari
  * @since 11/19/12 1:26 AM
  */
 @Service
-public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends Atom, AP extends AtomPush> implements ChainsManager<C,B,A,AP> {
+public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends Atom, AP extends AtomPush> implements ChainsManager<C,B,A,AP>, ChainEventSource<C> {
     @Autowired
     private AtomsManager<A,AP> atomsManager;
     @Autowired
     private ChainFactory<C> chainFactory;
     @Autowired
     private BandFactory<B> bandFactory;
+    @Autowired(required = false)
+    private AtomCopier<A> atomCopier = new BeanAtomCopier<A>();
 
     private int idLength = 8;
 
+    private final ChainEventDispatcher events = new ChainEventDispatcher();
+
+    private final WeakIdentityMap<C, ChainTypeIndex<B>> typeIndexes = new WeakIdentityMap<C, ChainTypeIndex<B>>();
+
+    // Atoms of chains read by their forks
+    private final WeakIdentityMap<C, Set<SharedAtomsList.Share<A>>> lent = new WeakIdentityMap<C, Set<SharedAtomsList.Share<A>>>();
+
     /**
      * Builds a new Chain object
      *
@@ -51,6 +72,26 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      * @throws InstantiationException
      */
     public void addAtom(C chain, A atom) throws IllegalAccessException, InstantiationException {
+        try {
+            B band = appendAtom(chain, atom);
+            if (events.isActive(chain)) {
+                events.fire(ChainEvent.atomAdded(chain, atom, band, band.getAtoms().size() - 1));
+            }
+        } finally {
+            events.flush();
+        }
+    }
+
+    /**
+     * Appends an atom to the last band of a chain, possibly creates a new band object
+     *
+     * @param chain
+     * @param atom
+     * @return band the atom is placed into
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     */
+    private B appendAtom(C chain, A atom) throws IllegalAccessException, InstantiationException {
         if (chain.getBands() == null) {
             chain.setBands(new LinkedList<B>());
         }
@@ -65,8 +106,10 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
             band = createBand(chain);
             band.setType(atom.getType());
             chain.getBands().add(band);
+            bandInserted(chain, band, chain.getBands().size() - 1);
         }
         band.getAtoms().add(atom);
+        return band;
     }
 
     /**
@@ -120,11 +163,21 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
         A atom = build(chain, data);
         B band = getBand(chain, bandId);
 
-        if (band.getType().equalsIgnoreCase(atom.getType())) {
-            band.getAtoms().add(atom);
-        } else {
-            addAtom(chain, atom);
-            moveToBand(chain, atom.getId(), bandId);
+        try {
+            if (band.getType().equalsIgnoreCase(atom.getType())) {
+                band.getAtoms().add(atom);
+                if (events.isActive(chain)) {
+                    events.fire(ChainEvent.atomAdded(chain, atom, band, band.getAtoms().size() - 1));
+                }
+            } else {
+                B appended = appendAtom(chain, atom);
+                if (events.isActive(chain)) {
+                    events.fire(ChainEvent.atomAdded(chain, atom, appended, appended.getAtoms().size() - 1));
+                }
+                doMoveToBand(chain, atom.getId(), bandId);
+            }
+        } finally {
+            events.flush();
         }
         return atom;
     }
@@ -148,20 +201,32 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      * @param id
      */
     public void removeAtom(C chain, String id) throws NotFoundInChainException {
-        for (B b : chain.getBands())
-            for (A a : b.getAtoms())
-                if (a.getId().equalsIgnoreCase(id)) {
-                    b.getAtoms().remove(a);
-                    if (b.getAtoms().size() == 0) {
-                        chain.getBands().remove(b);
+        try {
+            for (B b : chain.getBands()) {
+                int position = 0;
+                for (A a : b.getAtoms()) {
+                    if (a.getId().equalsIgnoreCase(id)) {
+                        A removed = b.getAtoms().remove(position);
+                        if (events.isActive(chain)) {
+                            events.fire(ChainEvent.atomRemoved(chain, removed, b, position));
+                        }
+                        if (b.getAtoms().size() == 0) {
+                            removeBand(chain, b);
+                        }
+                        return;
                     }
-                    return;
+                    ++position;
                 }
+            }
+        } finally {
+            events.flush();
+        }
         throw new NotFoundInChainException();
     }
 
     /**
-     * Deletes atom contents and removes it from a chain
+     * Deletes atom contents and removes it from a chain. A fork deletes its own copy of the atom,
+     * forks still reading the atom get their copies before it's deleted
      *
      * @param chain
      * @param id
@@ -169,7 +234,12 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      *
      */
     public void deleteAtom(C chain, String id) throws CreativeAtomException {
-        atomsManager.delete(getAtom(chain, id));
+        own(getAtomBand(chain, id));
+        A atom = getAtom(chain, id);
+        Set<A> deleted = Collections.newSetFromMap(new IdentityHashMap<A, Boolean>());
+        deleted.add(atom);
+        release(chain, deleted);
+        atomsManager.delete(atom);
         removeAtom(chain, id);
     }
 
@@ -196,14 +266,19 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
     }
 
     /**
-     * Deletes all chain atoms contents
+     * Deletes all chain atoms contents. Atoms a fork still reads from its source are not its own, so they
+     * are kept; forks still reading atoms of the chain get their copies first
      *
      * @param chain
      * @throws infra.ca.ex.CreativeAtomException
      *
      */
     public void delete(C chain) throws CreativeAtomException {
-        for (B b : chain.getBands()) for (A a : b.getAtoms()) atomsManager.delete(a);
+        release(chain, null);
+        for (B b : chain.getBands()) {
+            if (isBorrowed(b)) continue;
+            for (A a : b.getAtoms()) atomsManager.delete(a);
+        }
     }
 
     /**
@@ -245,7 +320,11 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      */
     public void moveInBand(C chain, String atomId, int moveToPosition) throws NotFoundInChainException {
         B band = getAtomBand(chain, atomId);
-        moveInList(band.getAtoms(), atomId, moveToPosition);
+        try {
+            moveWithinBand(chain, band, atomId, moveToPosition);
+        } finally {
+            events.flush();
+        }
     }
 
     /**
@@ -256,7 +335,21 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      * @param moveToPosition
      */
     public void moveBand(C chain, String bandId, int moveToPosition) {
-        moveInList(chain.getBands(), bandId, moveToPosition);
+        try {
+            if (events.isActive(chain) || typeIndexes.containsKey(chain)) {
+                B band = null;
+                for (B b : chain.getBands()) if (b.getId().equalsIgnoreCase(bandId)) band = b;
+                int position = chain.getBands().indexOf(band);
+                moveInList(chain.getBands(), bandId, moveToPosition);
+                if (band != null) {
+                    bandMoved(chain, band, position);
+                }
+            } else {
+                moveInList(chain.getBands(), bandId, moveToPosition);
+            }
+        } finally {
+            events.flush();
+        }
     }
 
 
@@ -268,24 +361,34 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      * @param bandId
      */
     public void moveToBand(C chain, String atomId, String bandId) throws NotFoundInChainException, IllegalAccessException, InstantiationException {
-        B sourceBand = getAtomBand(chain, atomId);
-        if (sourceBand.getId().equalsIgnoreCase(bandId)) {
-            moveInList(sourceBand.getAtoms(), atomId, sourceBand.getAtoms().size() - 1);
+        try {
+            doMoveToBand(chain, atomId, bandId);
+        } finally {
+            events.flush();
         }
+    }
+
+    /**
+     * Moves an atom right after a target band
+     *
+     * @param chain
+     * @param atomId
+     * @param bandId
+     */
+    private void doMoveToBand(C chain, String atomId, String bandId) throws NotFoundInChainException, IllegalAccessException, InstantiationException {
+        B sourceBand = getAtomBand(chain, atomId);
+        int sourcePosition = positionOf(sourceBand, atomId);
 
         B targetBand = getBand(chain, bandId);
-        A atom = null;
-        for (A a : sourceBand.getAtoms()) {
-            if (a.getId().equalsIgnoreCase(atomId)) {
-                atom = a;
-            }
-        }
         // Simple case
         if (targetBand.getType().equalsIgnoreCase(sourceBand.getType())) {
-            targetBand.getAtoms().add(atom);
-            sourceBand.getAtoms().remove(atom);
+            if (targetBand == sourceBand) {
+                relocate(chain, sourceBand, sourcePosition, sourceBand, sourceBand.getAtoms().size() - 1);
+                return;
+            }
+            relocate(chain, sourceBand, sourcePosition, targetBand, targetBand.getAtoms().size());
             if (sourceBand.getAtoms().size() == 0) {
-                chain.getBands().remove(sourceBand);
+                removeBand(chain, sourceBand);
             }
             // Less simple case, but still without position
         } else {
@@ -294,24 +397,25 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
             if (targetPosition < chain.getBands().size() - 1) {
                 B nextBand = chain.getBands().get(targetPosition + 1);
                 if (nextBand.getType().equalsIgnoreCase(sourceBand.getType())) {
-                    sourceBand.getAtoms().remove(atom);
-                    nextBand.getAtoms().add(0, atom);
+                    relocate(chain, sourceBand, sourcePosition, nextBand, 0);
                     if (sourceBand.getAtoms().size() == 0) {
-                        chain.getBands().remove(sourceBand);
+                        removeBand(chain, sourceBand);
                     }
                     return;
                 }
             }
             if (sourceBand.getAtoms().size() == 1) {
                 // Move atom with its band
+                int sourceBandPosition = chain.getBands().indexOf(sourceBand);
                 chain.getBands().remove(sourceBand);
                 chain.getBands().add(targetPosition, sourceBand);
+                bandMoved(chain, sourceBand, sourceBandPosition);
             } else {
                 // Create a new band
                 B newBand = copyBand(chain, sourceBand);
-                sourceBand.getAtoms().remove(atom);
-                newBand.getAtoms().add(atom);
                 chain.getBands().add(targetPosition + 1, newBand);
+                bandInserted(chain, newBand, targetPosition + 1);
+                relocate(chain, sourceBand, sourcePosition, newBand, 0);
             }
         }
     }
@@ -325,40 +429,48 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      * @param moveToPosition
      */
     public void moveToBand(C chain, String atomId, String bandId, int moveToPosition) throws NotFoundInChainException, InstantiationException, IllegalAccessException {
+        try {
+            doMoveToBand(chain, atomId, bandId, moveToPosition);
+        } finally {
+            events.flush();
+        }
+    }
+
+    /**
+     * Moves an atom to specified position in a target band
+     *
+     * @param chain
+     * @param atomId
+     * @param bandId
+     * @param moveToPosition
+     */
+    private void doMoveToBand(C chain, String atomId, String bandId, int moveToPosition) throws NotFoundInChainException, InstantiationException, IllegalAccessException {
         B sourceBand = getAtomBand(chain, atomId);
         // Target is a source -- degrade
         if (sourceBand.getId().equalsIgnoreCase(bandId)) {
-            moveInBand(chain, atomId, moveToPosition);
+            moveWithinBand(chain, sourceBand, atomId, moveToPosition);
             return;
         }
 
         B targetBand = getBand(chain, bandId);
         // Moving right after the target band -- degrade
         if (targetBand.getAtoms().size() <= moveToPosition) {
-            moveToBand(chain, atomId, bandId);
+            doMoveToBand(chain, atomId, bandId);
             return;
         }
 
         // We actually need to move
-        A atom = null;
-        for (A a : sourceBand.getAtoms()) {
-            if (a.getId().equalsIgnoreCase(atomId)) {
-                atom = a;
-            }
-        }
-        if (atom == null) {
+        int sourcePosition = positionOf(sourceBand, atomId);
+        if (sourcePosition < 0) {
             throw new NotFoundInChainException();
         }
         // Simple case
         if (targetBand.getType().equalsIgnoreCase(sourceBand.getType())) {
             // Just moving an atom
-            sourceBand.getAtoms().remove(atom);
+            relocate(chain, sourceBand, sourcePosition, targetBand, Math.max(moveToPosition, 0));
             if (sourceBand.getAtoms().size() == 0) {
-                chain.getBands().remove(sourceBand);
+                removeBand(chain, sourceBand);
             }
-            // Simply add and rearrange
-            targetBand.getAtoms().add(atom);
-            moveInList(targetBand.getAtoms(), atomId, moveToPosition);
         } else {
             // It's not so simple yet
             if (moveToPosition == 0) {
@@ -367,43 +479,37 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
                 if (targetPosition == 0) {
                     // Placing before everything
                     if (sourceBand.getAtoms().size() == 1) {
+                        int sourceBandPosition = chain.getBands().indexOf(sourceBand);
                         chain.getBands().remove(sourceBand);
                         chain.getBands().add(0, sourceBand);
+                        bandMoved(chain, sourceBand, sourceBandPosition);
                     } else {
-                        sourceBand.getAtoms().remove(atom);
                         B newBand = copyBand(chain, sourceBand);
-                        newBand.getAtoms().add(atom);
                         chain.getBands().add(0, newBand);
+                        bandInserted(chain, newBand, 0);
+                        relocate(chain, sourceBand, sourcePosition, newBand, 0);
                     }
                 } else {
                     // Placing after the previous band
                     Band previousBand = chain.getBands().get(targetPosition - 1);
-                    moveToBand(chain, atomId, previousBand.getId());
+                    doMoveToBand(chain, atomId, previousBand.getId());
                 }
             } else {
                 // It's inside the target band and we have to split it
-                // Prepare new band object
-                B newBand;
+                splitInChain(chain, targetBand, chain.getBands().indexOf(targetBand), moveToPosition);
                 if (sourceBand.getAtoms().size() == 1) {
-                    newBand = sourceBand;
+                    // Move atom with its band between parts of the target
+                    int sourceBandPosition = chain.getBands().indexOf(sourceBand);
                     chain.getBands().remove(sourceBand);
+                    chain.getBands().add(chain.getBands().indexOf(targetBand) + 1, sourceBand);
+                    bandMoved(chain, sourceBand, sourceBandPosition);
                 } else {
-                    newBand = copyBand(chain, sourceBand);
-                    sourceBand.getAtoms().remove(atom);
-                    newBand.getAtoms().add(atom);
+                    B newBand = copyBand(chain, sourceBand);
+                    int newBandPosition = chain.getBands().indexOf(targetBand) + 1;
+                    chain.getBands().add(newBandPosition, newBand);
+                    bandInserted(chain, newBand, newBandPosition);
+                    relocate(chain, sourceBand, sourcePosition, newBand, 0);
                 }
-                int targetPosition = chain.getBands().indexOf(targetBand);
-
-                // Prepare second part of target band
-                B secondTarget = copyBand(chain, targetBand);
-                secondTarget.getAtoms().addAll(targetBand.getAtoms().subList(moveToPosition, targetBand.getAtoms().size()));
-                targetBand.setAtoms(targetBand.getAtoms().subList(0, moveToPosition));
-
-                List<B> bands = new LinkedList<B>();
-                bands.add(newBand);
-                bands.add(secondTarget);
-
-                chain.getBands().addAll(targetPosition + 1, bands);
             }
         }
     }
@@ -416,6 +522,21 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      * @param moveToPosition
      */
     public void moveAtom(C chain, String atomId, int moveToPosition) throws NotFoundInChainException, InstantiationException, IllegalAccessException {
+        try {
+            doMoveAtom(chain, atomId, moveToPosition);
+        } finally {
+            events.flush();
+        }
+    }
+
+    /**
+     * Moves an atom in a chain
+     *
+     * @param chain
+     * @param atomId
+     * @param moveToPosition
+     */
+    private void doMoveAtom(C chain, String atomId, int moveToPosition) throws NotFoundInChainException, InstantiationException, IllegalAccessException {
         // left position index in a band
         int bandOffset = 0;
         // right position index in a band
@@ -457,20 +578,20 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
 
         // Target not found -- moving to the end of a chain
         if (targetBand == null) {
-            moveToBand(chain, atomId, chain.getBands().get(chain.getBands().size() - 1).getId());
+            doMoveToBand(chain, atomId, chain.getBands().get(chain.getBands().size() - 1).getId());
             return;
         }
 
         // Moving inside a single band
         if (targetBand == sourceBand) {
             if (targetBandPosition != sourceBandPosition) {
-                moveInList(targetBand.getAtoms(), atomId, targetBandPosition);
+                moveWithinBand(chain, targetBand, atomId, targetBandPosition);
             }
             return;
         }
 
         // Moving to another band
-        moveToBand(chain, atomId, targetBand.getId(), targetBandPosition);
+        doMoveToBand(chain, atomId, targetBand.getId(), targetBandPosition);
     }
 
     /**
@@ -483,7 +604,586 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
      *
      */
     public void setBandStyle(C chain, String bandId, Map<String, String> style) throws NotFoundInChainException {
-        getBand(chain, bandId).setStyles(style);
+        B band = getBand(chain, bandId);
+        Map<String, String> previous = band.getStyles();
+        band.setStyles(style);
+        if (events.isActive(chain)) {
+            try {
+                events.fire(ChainEvent.bandRestyled(chain, band, previous, band.getStyles()));
+            } finally {
+                events.flush();
+            }
+        }
+    }
+
+    /**
+     * Moves a run of atoms to another position in a chain. Whole bands are moved as they are,
+     * bands are split at the run boundaries and merged with neighbours of the same type
+     *
+     * @param chain
+     * @param fromPosition   first atom of the run
+     * @param toPosition     position right after the last atom of the run
+     * @param moveToPosition position among the atoms left after the run is cut out
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public void moveRange(C chain, int fromPosition, int toPosition, int moveToPosition) throws InstantiationException, IllegalAccessException {
+        if (chain.getBands() == null) return;
+        int size = atomsCount(chain);
+        fromPosition = Math.max(fromPosition, 0);
+        toPosition = Math.min(toPosition, size);
+        if (fromPosition >= toPosition) return;
+        int length = toPosition - fromPosition;
+        moveToPosition = Math.min(Math.max(moveToPosition, 0), size - length);
+        if (moveToPosition == fromPosition) return;
+
+        try {
+            // Target position in terms of the whole chain
+            int target = moveToPosition < fromPosition ? moveToPosition : moveToPosition + length;
+            boundary(chain, fromPosition);
+            boundary(chain, toPosition);
+            boundary(chain, target);
+
+            int first = bandIndexAt(chain, fromPosition);
+            int last = bandIndexAt(chain, toPosition);
+            int insert = bandIndexAt(chain, target);
+
+            B gapLeft = first > 0 ? chain.getBands().get(first - 1) : null;
+            B gapRight = last < chain.getBands().size() ? chain.getBands().get(last) : null;
+            B insertLeft = insert > 0 ? chain.getBands().get(insert - 1) : null;
+            B insertRight = insert < chain.getBands().size() ? chain.getBands().get(insert) : null;
+
+            List<B> run = cutBands(chain, first, last);
+            if (insert > first) insert -= run.size();
+            chain.getBands().addAll(insert, run);
+
+            ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+            if (typeIndex != null) {
+                typeIndex.moved(chain.getBands(), insert, insert + run.size());
+            }
+            if (events.isActive(chain)) {
+                // Moves are fired to be applied one by one
+                if (insert < first) {
+                    for (int i = 0; i < run.size(); i++) {
+                        events.fire(ChainEvent.bandMoved(chain, run.get(i), first + i, insert + i));
+                    }
+                } else {
+                    for (int i = run.size() - 1; i >= 0; i--) {
+                        events.fire(ChainEvent.bandMoved(chain, run.get(i), first + i, insert + i));
+                    }
+                }
+            }
+
+            // Merging at boundaries
+            B merged = mergeBands(chain, gapLeft, gapRight);
+            if (merged != null && insertLeft == gapRight) insertLeft = merged;
+            if (merged != null && insertRight == gapRight) insertRight = merged;
+            mergeRun(chain, insertLeft, run, insertRight);
+        } finally {
+            events.flush();
+        }
+    }
+
+    /**
+     * Moves a run of atoms from one chain to another. Whole bands are moved as they are, ids of bands
+     * and atoms are changed if they're taken in a target chain; bands are split at the run boundaries and merged
+     * with neighbours of the same type
+     *
+     * @param sourceChain
+     * @param fromPosition first atom of the run
+     * @param toPosition   position right after the last atom of the run
+     * @param targetChain
+     * @param position     position in a target chain to place the run to
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public void splice(C sourceChain, int fromPosition, int toPosition, C targetChain, int position) throws InstantiationException, IllegalAccessException {
+        if (sourceChain.getBands() == null) return;
+        fromPosition = Math.max(fromPosition, 0);
+        toPosition = Math.min(toPosition, atomsCount(sourceChain));
+        if (fromPosition >= toPosition) return;
+        if (sourceChain == targetChain) {
+            // A run placed inside itself stays where it is
+            if (position >= fromPosition && position <= toPosition) return;
+            moveRange(sourceChain, fromPosition, toPosition, position > toPosition ? position - (toPosition - fromPosition) : position);
+            return;
+        }
+        if (targetChain.getBands() == null) {
+            targetChain.setBands(new LinkedList<B>());
+        }
+        position = Math.min(Math.max(position, 0), atomsCount(targetChain));
+
+        try {
+            // Cutting from a source chain
+            boundary(sourceChain, fromPosition);
+            boundary(sourceChain, toPosition);
+            int first = bandIndexAt(sourceChain, fromPosition);
+            int last = bandIndexAt(sourceChain, toPosition);
+            B gapLeft = first > 0 ? sourceChain.getBands().get(first - 1) : null;
+            B gapRight = last < sourceChain.getBands().size() ? sourceChain.getBands().get(last) : null;
+
+            List<B> run = cutBands(sourceChain, first, last);
+            if (lent.containsKey(sourceChain)) {
+                // Atoms leaving a chain are not lent by it anymore
+                Set<A> moved = Collections.newSetFromMap(new IdentityHashMap<A, Boolean>());
+                for (B b : run) moved.addAll(b.getAtoms());
+                release(sourceChain, moved);
+            }
+            ChainTypeIndex<B> typeIndex = typeIndexes.get(sourceChain);
+            if (typeIndex != null) {
+                for (B b : run) typeIndex.removed(b);
+            }
+            if (events.isActive(sourceChain)) {
+                for (B b : run) events.fire(ChainEvent.bandRemoved(sourceChain, b, first));
+            }
+            mergeBands(sourceChain, gapLeft, gapRight);
+
+            // Pasting into a target chain
+            boundary(targetChain, position);
+            int insert = bandIndexAt(targetChain, position);
+            B insertLeft = insert > 0 ? targetChain.getBands().get(insert - 1) : null;
+            B insertRight = insert < targetChain.getBands().size() ? targetChain.getBands().get(insert) : null;
+
+            Set<String> bandIds = new HashSet<String>();
+            Set<String> atomIds = new HashSet<String>();
+            for (B b : targetChain.getBands()) {
+                bandIds.add(b.getId().toLowerCase());
+                for (A a : b.getAtoms()) atomIds.add(a.getId().toLowerCase());
+            }
+            boolean listened = events.isActive(targetChain);
+            for (B b : run) {
+                while (!bandIds.add(b.getId().toLowerCase())) {
+                    b.setId(randomId());
+                }
+                // Atoms read from a fork source are copied before they're renamed or handed to listeners
+                if (listened) {
+                    own(b);
+                } else {
+                    for (A a : b.getAtoms()) {
+                        if (atomIds.contains(a.getId().toLowerCase())) {
+                            own(b);
+                            break;
+                        }
+                    }
+                }
+                for (A a : b.getAtoms()) {
+                    while (!atomIds.add(a.getId().toLowerCase())) {
+                        a.setId(randomId());
+                    }
+                }
+            }
+            // Bands are created empty, their atoms follow as added ones
+            List<List<A>> contents = null;
+            if (listened) {
+                contents = new ArrayList<List<A>>(run.size());
+                for (B b : run) {
+                    contents.add(new ArrayList<A>(b.getAtoms()));
+                    b.getAtoms().clear();
+                }
+            }
+            targetChain.getBands().addAll(insert, run);
+
+            typeIndex = typeIndexes.get(targetChain);
+            if (typeIndex != null) {
+                typeIndex.added(targetChain.getBands(), insert, insert + run.size());
+            }
+            if (listened) {
+                for (int i = 0; i < run.size(); i++) {
+                    B b = run.get(i);
+                    events.fire(ChainEvent.bandCreated(targetChain, b, insert + i));
+                    List<A> atoms = contents.get(i);
+                    b.getAtoms().addAll(atoms);
+                    for (int p = 0; p < atoms.size(); p++) {
+                        events.fire(ChainEvent.atomAdded(targetChain, atoms.get(p), b, p));
+                    }
+                }
+            }
+            mergeRun(targetChain, insertLeft, run, insertRight);
+        } finally {
+            events.flush();
+        }
+    }
+
+    /**
+     * Makes a new chain with the same contents in O(bands). Bands get new ids in one pass; atoms are read
+     * from the source bands until a fork band is changed, then the band gets copies made with {@link AtomCopier}.
+     * Atoms keep their ids: ids are unique within a chain, so an id read from a fork stays valid after its
+     * atom is copied. A fork gets copies of all its atoms once a listener of its own is registered, and right away
+     * if it keeps atoms in a storage of its own, like {@link CompactChain}
+     *
+     * @param chain
+     * @return a new chain
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public C fork(C chain) throws InstantiationException, IllegalAccessException {
+        C fork = chainFactory.buildChain();
+        if (chain.getBands() == null) return fork;
+
+        List<B> bands = new ArrayList<B>(chain.getBands().size());
+        Set<String> bandIds = new HashSet<String>();
+        for (B source : chain.getBands()) {
+            B band = bandFactory.buildBand();
+            String id;
+            do {
+                id = randomId();
+            } while (!bandIds.add(id));
+            band.setId(id);
+            band.setType(source.getType());
+            band.setStyles(source.getStyles() == null ? null : new HashMap<String, String>(source.getStyles()));
+            band.setAtoms(new ArrayList<A>());
+            bands.add(band);
+        }
+        fork.setBands(bands);
+        if (bands.isEmpty()) return fork;
+
+        boolean listened = events.isActive(fork);
+        // A chain copying bands into a storage of its own can't read atoms of another one
+        boolean sharing = fork.getBands().get(0).getAtoms() == bands.get(0).getAtoms();
+        List<SharedAtomsList.Share<A>> shares = new ArrayList<SharedAtomsList.Share<A>>();
+        try {
+            Iterator<B> sources = chain.getBands().iterator();
+            int position = 0;
+            for (B band : fork.getBands()) {
+                B source = sources.next();
+                if (listened) {
+                    events.fire(ChainEvent.bandCreated(fork, band, position));
+                }
+                List<A> atoms = sharing ? borrow(source, shares) : null;
+                if (atoms != null) {
+                    band.setAtoms(atoms);
+                } else {
+                    atoms = new ArrayList<A>(source.getAtoms().size());
+                    for (A a : source.getAtoms()) atoms.add(atomCopier.copy(a));
+                    band.getAtoms().addAll(atoms);
+                }
+                if (listened) {
+                    for (int p = 0; p < atoms.size(); p++) {
+                        events.fire(ChainEvent.atomAdded(fork, atoms.get(p), band, p));
+                    }
+                }
+                ++position;
+            }
+        } finally {
+            events.flush();
+        }
+        if (!shares.isEmpty()) {
+            lend(chain, shares);
+        }
+        return fork;
+    }
+
+    /**
+     * Returns bands of a type in chain order. Type index of a chain is built on the first call
+     * and then maintained by the manager
+     *
+     * @param chain
+     * @param type
+     * @return lazy iterator
+     */
+    public Iterator<B> getBandsByType(C chain, String type) {
+        if (chain.getBands() == null) {
+            return Collections.<B>emptyList().iterator();
+        }
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        if (typeIndex == null) {
+            typeIndex = new ChainTypeIndex<B>(chain.getBands());
+            typeIndexes.put(chain, typeIndex);
+        }
+        return typeIndex.get(type).iterator();
+    }
+
+    /**
+     * Returns atoms of a type in chain order
+     *
+     * @param chain
+     * @param type
+     * @return lazy iterator
+     */
+    public Iterator<A> getAtomsByType(C chain, String type) {
+        final Iterator<B> bands = getBandsByType(chain, type);
+        return new Iterator<A>() {
+            private Iterator<A> atoms = Collections.<A>emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!atoms.hasNext() && bands.hasNext()) {
+                    atoms = bands.next().getAtoms().iterator();
+                }
+                return atoms.hasNext();
+            }
+
+            @Override
+            public A next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return atoms.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Drops cached indexes of a chain
+     *
+     * @param chain
+     */
+    public void reindex(C chain) {
+        typeIndexes.remove(chain);
+    }
+
+    /**
+     * Registers a listener of chain changes
+     *
+     * @param listener
+     * @param batched  if true, listener gets all the events of a call when it's over
+     */
+    public void addChainListener(ChainListener listener, boolean batched) {
+        events.addListener(listener, batched);
+    }
+
+    /**
+     * Unregisters a listener of chain changes
+     *
+     * @param listener
+     */
+    public void removeChainListener(ChainListener listener) {
+        events.removeListener(listener);
+    }
+
+    /**
+     * Registers a listener of a single chain changes. A fork gets copies of atoms it still reads from its source
+     *
+     * @param chain
+     * @param listener
+     * @param batched  if true, listener gets all the events of a call for this chain when it's over
+     */
+    public void addChainListener(C chain, ChainListener listener, boolean batched) {
+        ownAtoms(chain);
+        events.addListener(chain, listener, batched);
+    }
+
+    /**
+     * Unregisters a listener of a single chain changes
+     *
+     * @param chain
+     * @param listener
+     */
+    public void removeChainListener(C chain, ChainListener listener) {
+        events.removeListener(chain, listener);
+    }
+
+    /**
+     * Replaces atoms a fork still reads from its source with copies. Listeners keep atoms they are told about,
+     * so a fork gets its copies before it's listened to
+     *
+     * @param chain
+     */
+    void ownAtoms(C chain) {
+        if (chain.getBands() == null) return;
+        for (B b : chain.getBands()) own(b);
+    }
+
+    /**
+     * Applies changes to a chain one by one and fires them as events of a single call, so indexes and
+     * listeners follow. Used to undo and redo recorded changes
+     *
+     * @param chain
+     * @param changes bands and atoms of this chain, in causal order
+     * @throws IllegalStateException if a change doesn't match the chain, changes applied before it are kept
+     */
+    void replay(C chain, List<ChainEvent> changes) {
+        replay(chain, changes.iterator());
+    }
+
+    /**
+     * Applies changes to a chain one by one and fires them as events of a single call. A change is taken
+     * from the iterator after the previous one is applied, so it may be resolved against the chain as it is
+     *
+     * @param chain
+     * @param changes bands and atoms of this chain, in causal order
+     * @throws IllegalStateException if a change doesn't match the chain, changes applied before it are kept
+     */
+    @SuppressWarnings("unchecked")
+    void replay(C chain, Iterator<ChainEvent> changes) {
+        if (chain.getBands() == null) {
+            chain.setBands(new LinkedList<B>());
+        }
+        List<B> bands = chain.getBands();
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        try {
+            while (changes.hasNext()) {
+                ChainEvent e = changes.next();
+                A atom = (A) e.getAtom();
+                B from = (B) e.getFromBand();
+                B to = (B) e.getToBand();
+                switch (e.getType()) {
+                    case ATOM_ADDED:
+                        to.getAtoms().add(e.getToPosition(), atom);
+                        break;
+                    case ATOM_REMOVED:
+                        expect(atom, from.getAtoms().remove(e.getFromPosition()), e);
+                        break;
+                    case ATOM_MOVED:
+                        expect(atom, from.getAtoms().remove(e.getFromPosition()), e);
+                        to.getAtoms().add(e.getToPosition(), atom);
+                        break;
+                    case BAND_CREATED:
+                        bands.add(e.getToPosition(), to);
+                        if (typeIndex != null) typeIndex.added(bands, e.getToPosition(), e.getToPosition() + 1);
+                        break;
+                    case BAND_REMOVED:
+                        expect(from, bands.remove(e.getFromPosition()), e);
+                        if (typeIndex != null) typeIndex.removed(from);
+                        break;
+                    case BAND_MOVED:
+                        expect(from, bands.remove(e.getFromPosition()), e);
+                        bands.add(e.getToPosition(), from);
+                        if (typeIndex != null) typeIndex.moved(bands, e.getToPosition(), e.getToPosition() + 1);
+                        break;
+                    case BAND_SPLIT:
+                        List<A> tail = from.getAtoms().subList(e.getFromPosition(), from.getAtoms().size());
+                        to.getAtoms().clear();
+                        to.getAtoms().addAll(tail);
+                        tail.clear();
+                        bands.add(e.getToPosition(), to);
+                        if (typeIndex != null) typeIndex.added(bands, e.getToPosition(), e.getToPosition() + 1);
+                        break;
+                    case BAND_MERGED:
+                        if (to.getAtoms().size() != e.getToPosition()) {
+                            throw new IllegalStateException("Change doesn't match chain: " + e);
+                        }
+                        expect(from, bands.remove(e.getFromPosition()), e);
+                        to.getAtoms().addAll(from.getAtoms());
+                        if (typeIndex != null) typeIndex.removed(from);
+                        break;
+                    case BAND_RESTYLED:
+                        to.setStyles(e.getStyles());
+                        break;
+                }
+                if (events.isActive(chain)) {
+                    events.fire(e.getChain() == chain ? e : e.withChain(chain));
+                }
+            }
+        } finally {
+            events.flush();
+        }
+    }
+
+    private static void expect(Object expected, Object actual, ChainEvent change) {
+        if (expected != actual) {
+            throw new IllegalStateException("Change doesn't match chain: " + change);
+        }
+    }
+
+    /**
+     * Removes an empty band from a chain
+     *
+     * @param chain
+     * @param band
+     */
+    private void removeBand(C chain, B band) {
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        if (typeIndex != null) {
+            typeIndex.removed(band);
+        }
+        if (events.isActive(chain)) {
+            int position = chain.getBands().indexOf(band);
+            chain.getBands().remove(band);
+            events.fire(ChainEvent.bandRemoved(chain, band, position));
+        } else {
+            chain.getBands().remove(band);
+        }
+    }
+
+    /**
+     * Tracks a band inserted into a chain
+     *
+     * @param chain
+     * @param band
+     * @param position
+     */
+    private void bandInserted(C chain, B band, int position) {
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        if (typeIndex != null) {
+            typeIndex.added(chain.getBands(), position, position + 1);
+        }
+        if (events.isActive(chain)) {
+            events.fire(ChainEvent.bandCreated(chain, band, position));
+        }
+    }
+
+    /**
+     * Tracks a band moved in a chain, fires an event if it was actually moved
+     *
+     * @param chain
+     * @param band
+     * @param fromPosition
+     */
+    private void bandMoved(C chain, B band, int fromPosition) {
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        int position = chain.getBands().indexOf(band);
+        if (typeIndex != null && position != fromPosition) {
+            typeIndex.moved(chain.getBands(), position, position + 1);
+        }
+        if (events.isActive(chain)) {
+            if (position != fromPosition) {
+                events.fire(ChainEvent.bandMoved(chain, band, fromPosition, position));
+            }
+        }
+    }
+
+    /**
+     * Moves an atom from one band position to another and fires an event. The atom is taken from the band
+     * as it's removed, so that a fork band moves its own copy
+     *
+     * @param chain
+     * @param fromBand
+     * @param fromPosition
+     * @param toBand
+     * @param toPosition   position after the atom is removed from fromBand
+     */
+    private void relocate(C chain, B fromBand, int fromPosition, B toBand, int toPosition) {
+        if (fromBand == toBand && fromPosition == toPosition) return;
+        A atom = fromBand.getAtoms().remove(fromPosition);
+        toBand.getAtoms().add(toPosition, atom);
+        if (events.isActive(chain)) {
+            events.fire(ChainEvent.atomMoved(chain, atom, fromBand, fromPosition, toBand, toPosition));
+        }
+    }
+
+    /**
+     * Moves an atom to the specified position in its band, position is bound by band size
+     *
+     * @param chain
+     * @param band
+     * @param atomId
+     * @param moveToPosition
+     */
+    private void moveWithinBand(C chain, B band, String atomId, int moveToPosition) {
+        int position = positionOf(band, atomId);
+        if (position < 0) return;
+        moveToPosition = Math.min(Math.max(moveToPosition, 0), band.getAtoms().size() - 1);
+        relocate(chain, band, position, band, moveToPosition);
+    }
+
+    /**
+     * Returns position of an atom in a band
+     *
+     * @param band
+     * @param atomId
+     * @return position or -1
+     */
+    private int positionOf(B band, String atomId) {
+        int position = 0;
+        for (A a : band.getAtoms()) {
+            if (a.getId().equalsIgnoreCase(atomId)) return position;
+            ++position;
+        }
+        return -1;
     }
 
     /**
@@ -514,6 +1214,92 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
         list.add(moveToPosition, objectToMove);
     }
 
+    /**
+     * Lends atoms of a band to a fork, switching the band to a copy-on-write list if needed
+     *
+     * @param band   source band
+     * @param shares collects atoms lent by the source chain itself
+     * @return a list for a fork band, or null if atoms are kept in a storage which can't be shared
+     */
+    @SuppressWarnings("unchecked")
+    private SharedAtomsList<A> borrow(B band, List<SharedAtomsList.Share<A>> shares) {
+        List<A> atoms = band.getAtoms();
+        SharedAtomsList<A> list;
+        if (atoms instanceof SharedAtomsList) {
+            list = (SharedAtomsList<A>) atoms;
+        } else if (atoms instanceof ArrayList || atoms instanceof LinkedList) {
+            list = new SharedAtomsList<A>(atoms);
+            band.setAtoms(list);
+            if (band.getAtoms() != list) return null;
+        } else {
+            return null;
+        }
+        SharedAtomsList.Share<A> share = list.lend(atomCopier);
+        if (!list.isBorrowed()) {
+            shares.add(share);
+        }
+        return share.borrow();
+    }
+
+    /**
+     * Remembers atoms a chain lends to forks, forgets the ones no fork reads anymore
+     *
+     * @param chain
+     * @param shares
+     */
+    private void lend(C chain, List<SharedAtomsList.Share<A>> shares) {
+        synchronized (lent) {
+            Set<SharedAtomsList.Share<A>> chainShares = lent.get(chain);
+            if (chainShares == null) {
+                chainShares = Collections.newSetFromMap(new IdentityHashMap<SharedAtomsList.Share<A>, Boolean>());
+                lent.put(chain, chainShares);
+            }
+            Iterator<SharedAtomsList.Share<A>> it = chainShares.iterator();
+            while (it.hasNext()) {
+                if (!it.next().isBorrowed()) it.remove();
+            }
+            chainShares.addAll(shares);
+        }
+    }
+
+    /**
+     * Makes forks which still read atoms of a chain copy them, so that atoms may be deleted or moved away
+     *
+     * @param chain
+     * @param atoms identity set of atoms, or null for all the chain atoms
+     */
+    private void release(C chain, Set<A> atoms) {
+        List<SharedAtomsList.Share<A>> shares;
+        synchronized (lent) {
+            Set<SharedAtomsList.Share<A>> chainShares = atoms == null ? lent.remove(chain) : lent.get(chain);
+            if (chainShares == null) return;
+            shares = new ArrayList<SharedAtomsList.Share<A>>(chainShares);
+        }
+        for (SharedAtomsList.Share<A> share : shares) {
+            if (atoms == null || share.containsAny(atoms)) share.release();
+        }
+    }
+
+    /**
+     * Replaces atoms a fork band reads from its source with copies, before they are changed or handed out
+     *
+     * @param band
+     */
+    @SuppressWarnings("unchecked")
+    private void own(B band) {
+        if (band.getAtoms() instanceof SharedAtomsList) {
+            ((SharedAtomsList<A>) band.getAtoms()).own();
+        }
+    }
+
+    /**
+     * @param band
+     * @return true if a band reads atoms of another chain
+     */
+    private boolean isBorrowed(B band) {
+        return band.getAtoms() instanceof SharedAtomsList && ((SharedAtomsList) band.getAtoms()).isBorrowed();
+    }
+
     /**
      * Generates a random id
      *
@@ -534,7 +1320,7 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
     private B createBand(C chain) throws IllegalAccessException, InstantiationException {
         B band = bandFactory.buildBand();
         band.setId(getUniqueBandId(chain));
-        band.setAtoms(new LinkedList<A>());
+        band.setAtoms(new ArrayList<A>());
         return band;
     }
 
@@ -604,6 +1390,163 @@ public class ChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends
         return true;
     }
 
+    /**
+     * Makes a band boundary at the given chain position, splitting a band if needed
+     *
+     * @param chain
+     * @param position
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    private void boundary(C chain, int position) throws InstantiationException, IllegalAccessException {
+        int offset = 0;
+        int index = 0;
+        for (B b : chain.getBands()) {
+            int size = b.getAtoms().size();
+            if (position <= offset) return;
+            if (position < offset + size) {
+                splitInChain(chain, b, index, position - offset);
+                return;
+            }
+            offset += size;
+            ++index;
+        }
+    }
+
+    /**
+     * Returns index of the first band starting at the given position, or number of bands
+     *
+     * @param chain
+     * @param position
+     * @return band index
+     */
+    private int bandIndexAt(C chain, int position) {
+        int offset = 0;
+        int index = 0;
+        for (B b : chain.getBands()) {
+            if (position <= offset) return index;
+            offset += b.getAtoms().size();
+            ++index;
+        }
+        return index;
+    }
+
+    /**
+     * Removes a run of bands from a chain
+     *
+     * @param chain
+     * @param first inclusive
+     * @param last  exclusive
+     * @return removed bands
+     */
+    private List<B> cutBands(C chain, int first, int last) {
+        List<B> bands = chain.getBands().subList(first, last);
+        List<B> run = new ArrayList<B>(bands);
+        bands.clear();
+        return run;
+    }
+
+    /**
+     * Merges a run of bands just placed into a chain with its neighbours
+     *
+     * @param chain
+     * @param left  band before the run
+     * @param run
+     * @param right band after the run
+     */
+    private void mergeRun(C chain, B left, List<B> run, B right) {
+        if (run.isEmpty()) return;
+        B runLast = run.get(run.size() - 1);
+        B merged = mergeBands(chain, left, run.get(0));
+        if (merged != null && run.size() == 1) runLast = merged;
+        mergeBands(chain, runLast, right);
+    }
+
+    /**
+     * Appends atoms of a band to the previous one if they are of the same type. Atoms are appended
+     * in bulk, with O(appended atoms) cost: keeping either list without a copy would need a linked
+     * list, which makes every positional access O(band size)
+     *
+     * @param chain
+     * @param band
+     * @param next  band right after the band
+     * @return the band if merged, null otherwise
+     */
+    private B mergeBands(C chain, B band, B next) {
+        if (band == null || next == null || !band.getType().equalsIgnoreCase(next.getType())) return null;
+        int position = band.getAtoms().size();
+        int nextPosition = events.isActive(chain) ? chain.getBands().indexOf(next) : -1;
+        own(next);
+        band.getAtoms().addAll(next.getAtoms());
+        chain.getBands().remove(next);
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        if (typeIndex != null) {
+            typeIndex.removed(next);
+        }
+        if (events.isActive(chain)) {
+            events.fire(ChainEvent.bandMerged(chain, next, nextPosition, band, position));
+        }
+        return band;
+    }
+
+    /**
+     * Counts atoms in a chain
+     *
+     * @param chain
+     * @return number of atoms
+     */
+    private int atomsCount(C chain) {
+        int count = 0;
+        if (chain.getBands() != null) {
+            for (B b : chain.getBands()) count += b.getAtoms().size();
+        }
+        return count;
+    }
+
+    /**
+     * Splits a band at the given position. Atoms starting from the position are moved into a new band
+     * with a list of its own; the source band keeps its list, trimmed in place
+     *
+     * @param chain
+     * @param band
+     * @param position
+     * @return a new band with the tail atoms, not yet included into a chain
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    private B splitBand(C chain, B band, int position) throws InstantiationException, IllegalAccessException {
+        own(band);
+        B tail = copyBand(chain, band);
+        List<A> moved = band.getAtoms().subList(position, band.getAtoms().size());
+        tail.getAtoms().addAll(moved);
+        moved.clear();
+        return tail;
+    }
+
+    /**
+     * Splits a band at the given position, placing a new band with the tail atoms right after it
+     *
+     * @param chain
+     * @param band
+     * @param bandPosition position of the band in a chain
+     * @param position
+     * @return a new band
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    private B splitInChain(C chain, B band, int bandPosition, int position) throws InstantiationException, IllegalAccessException {
+        B tail = splitBand(chain, band, position);
+        chain.getBands().add(bandPosition + 1, tail);
+        ChainTypeIndex<B> typeIndex = typeIndexes.get(chain);
+        if (typeIndex != null) {
+            typeIndex.added(chain.getBands(), bandPosition + 1, bandPosition + 2);
+        }
+        if (events.isActive(chain)) {
+            events.fire(ChainEvent.bandSplit(chain, band, position, tail, bandPosition + 1));
+        }
+        return tail;
+    }
+
     /**
      * Makes a copy of a band in terms of its style, type and so on
      *
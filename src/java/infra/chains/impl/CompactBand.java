@@ -0,0 +1,201 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Band view over a {@link CompactChain}. While attached to a chain, all the state lives in chain arrays;
+ * a detached band (just built or removed from a chain) keeps its state in its own fields.
+ * An attached view refers to the chain storage only, never to the chain itself.
+ *
+ * @author alari
+ * @since 10/19/26 12:55 PM
+ */
+public class CompactBand implements Band<Atom> {
+    private CompactBands owner;
+    private int index;
+
+    // Detached state
+    private String id;
+    private Map<String, String> styles;
+    private String type;
+    private List<Atom> atoms;
+
+    private final AtomsList atomsList = new AtomsList();
+
+    public CompactBand() {
+    }
+
+    /**
+     * Copies a band of another implementation
+     *
+     * @param source
+     */
+    public CompactBand(Band<?> source) {
+        id = source.getId();
+        type = source.getType();
+        styles = source.getStyles();
+        atoms = source.getAtoms() == null ? new ArrayList<Atom>() : new ArrayList<Atom>(source.getAtoms());
+    }
+
+    public String toString() {
+        return "Band:" + getId();
+    }
+
+    public Map<String, String> getStyles() {
+        return owner == null ? styles : owner.getBandStyles(index);
+    }
+
+    public void setStyles(Map<String, String> styles) {
+        if (owner == null) {
+            this.styles = styles;
+        } else {
+            owner.setBandStyles(index, styles);
+        }
+    }
+
+    public String getType() {
+        return owner == null ? type : owner.getBandType(index);
+    }
+
+    public void setType(String type) {
+        if (owner == null) {
+            this.type = type;
+        } else {
+            owner.setBandType(index, type);
+        }
+    }
+
+    public List<Atom> getAtoms() {
+        return owner == null ? atoms : atomsList;
+    }
+
+    public void setAtoms(List<Atom> atoms) {
+        if (owner == null) {
+            this.atoms = atoms;
+        } else {
+            owner.replaceAtoms(index, atoms == null ? new Object[0] : atoms.toArray());
+        }
+    }
+
+    public String getId() {
+        return owner == null ? id : owner.getBandId(index);
+    }
+
+    public void setId(String id) {
+        if (owner == null) {
+            this.id = id;
+        } else {
+            owner.setBandId(index, id);
+        }
+    }
+
+    CompactBands getOwner() {
+        return owner;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Called by a chain when band state is moved into chain arrays
+     *
+     * @param owner
+     * @param index
+     */
+    void attached(CompactBands owner, int index) {
+        this.owner = owner;
+        this.index = index;
+        id = null;
+        type = null;
+        styles = null;
+        atoms = null;
+    }
+
+    /**
+     * Called by a chain before band state is removed from chain arrays
+     */
+    void detached() {
+        id = owner.getBandId(index);
+        type = owner.getBandType(index);
+        styles = owner.getBandStyles(index);
+        atoms = new ArrayList<Atom>(atomsList);
+        owner = null;
+    }
+
+    /**
+     * Live list of band atoms, backed by the chain array
+     */
+    private class AtomsList extends AbstractList<Atom> implements RandomAccess {
+        @Override
+        public Atom get(int i) {
+            checkIndex(i, size());
+            return owner.getAtom(index, i);
+        }
+
+        @Override
+        public int size() {
+            return owner.bandSize(index);
+        }
+
+        @Override
+        public Atom set(int i, Atom atom) {
+            checkIndex(i, size());
+            return owner.setAtom(index, i, atom);
+        }
+
+        @Override
+        public void add(int i, Atom atom) {
+            checkIndex(i, size() + 1);
+            ++modCount;
+            owner.insertAtoms(index, i, new Object[]{atom});
+        }
+
+        @Override
+        public boolean addAll(int i, Collection<? extends Atom> c) {
+            checkIndex(i, size() + 1);
+            Object[] added = c.toArray();
+            ++modCount;
+            owner.insertAtoms(index, i, added);
+            return added.length > 0;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Atom> c) {
+            return addAll(size(), c);
+        }
+
+        @Override
+        public Atom remove(int i) {
+            checkIndex(i, size());
+            Atom atom = owner.getAtom(index, i);
+            ++modCount;
+            owner.removeAtoms(index, i, i + 1);
+            return atom;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            ++modCount;
+            owner.removeAtoms(index, fromIndex, toIndex);
+        }
+
+        private void checkIndex(int i, int bound) {
+            if (i < 0 || i >= bound) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package infra.chains.impl;
+
+import infra.chains.Band;
+import infra.chains.BandFactory;
+
+/**
+ * @author alari
+ * @since 10/19/26 1:10 PM
+ */
+public class CompactBandFactory implements BandFactory {
+    @Override
+    public Band buildBand() {
+        return new CompactBand();
+    }
+}
@@ -0,0 +1,349 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Storage of a {@link CompactChain}: band ids, type ordinals, styles and band boundaries are stored
+ * per band, atoms of all bands are stored in a single array. It's a live list of {@link CompactBand} views.
+ * Views refer to the storage, not to the chain, so that maps weakly keyed by chains may keep bands
+ * without keeping their chains alive
+ *
+ * @author alari
+ * @since 10/19/26 12:40 PM
+ */
+class CompactBands extends AbstractList<Band> implements RandomAccess {
+    private static final int INITIAL_BANDS = 4;
+    private static final int INITIAL_ATOMS = 16;
+
+    // Per band arrays
+    private int bandsCount = 0;
+    private String[] bandIds = new String[INITIAL_BANDS];
+    private int[] bandTypes = new int[INITIAL_BANDS];
+    private Map<String, String>[] bandStyles = newStylesArray(INITIAL_BANDS);
+    // Exclusive end of each band in atoms array; band i starts at bandEnds[i-1]
+    private int[] bandEnds = new int[INITIAL_BANDS];
+    private CompactBand[] views = new CompactBand[INITIAL_BANDS];
+
+    // Type ordinals
+    private String[] types = new String[0];
+
+    // All the atoms, band after band
+    private int atomsCount = 0;
+    private Atom[] atoms = new Atom[INITIAL_ATOMS];
+
+    /**
+     * Replaces all the bands. Bands of other implementations are copied
+     *
+     * @param bands
+     */
+    void setAll(List<Band> bands) {
+        Object[] copy = bands == null ? new Object[0] : bands.toArray();
+        clear();
+        for (Object b : copy) {
+            add(b instanceof CompactBand ? (CompactBand) b : new CompactBand((Band) b));
+        }
+    }
+
+    /**
+     * @return total number of atoms in all the bands
+     */
+    int getAtomsCount() {
+        return atomsCount;
+    }
+
+    String getBandId(int band) {
+        return bandIds[band];
+    }
+
+    void setBandId(int band, String id) {
+        bandIds[band] = id;
+    }
+
+    String getBandType(int band) {
+        return types[bandTypes[band]];
+    }
+
+    void setBandType(int band, String type) {
+        bandTypes[band] = typeOrdinal(type);
+    }
+
+    Map<String, String> getBandStyles(int band) {
+        return bandStyles[band];
+    }
+
+    void setBandStyles(int band, Map<String, String> styles) {
+        bandStyles[band] = styles;
+    }
+
+    int bandStart(int band) {
+        return band == 0 ? 0 : bandEnds[band - 1];
+    }
+
+    int bandSize(int band) {
+        return bandEnds[band] - bandStart(band);
+    }
+
+    Atom getAtom(int band, int position) {
+        return atoms[bandStart(band) + position];
+    }
+
+    Atom setAtom(int band, int position, Atom atom) {
+        int i = bandStart(band) + position;
+        Atom old = atoms[i];
+        atoms[i] = atom;
+        return old;
+    }
+
+    /**
+     * Inserts atoms into a band at position, shifting all the following atoms
+     *
+     * @param band
+     * @param position
+     * @param inserted
+     */
+    void insertAtoms(int band, int position, Object[] inserted) {
+        int n = inserted.length;
+        if (n == 0) return;
+        ensureAtomsCapacity(atomsCount + n);
+        int at = bandStart(band) + position;
+        System.arraycopy(atoms, at, atoms, at + n, atomsCount - at);
+        for (int i = 0; i < n; i++) {
+            atoms[at + i] = (Atom) inserted[i];
+        }
+        atomsCount += n;
+        for (int b = band; b < bandsCount; b++) {
+            bandEnds[b] += n;
+        }
+    }
+
+    /**
+     * Removes a range of atoms from a band, shifting all the following atoms
+     *
+     * @param band
+     * @param from inclusive
+     * @param to   exclusive
+     */
+    void removeAtoms(int band, int from, int to) {
+        int n = to - from;
+        if (n <= 0) return;
+        int at = bandStart(band) + from;
+        System.arraycopy(atoms, at + n, atoms, at, atomsCount - at - n);
+        Arrays.fill(atoms, atomsCount - n, atomsCount, null);
+        atomsCount -= n;
+        for (int b = band; b < bandsCount; b++) {
+            bandEnds[b] -= n;
+        }
+    }
+
+    /**
+     * Replaces band contents with the given atoms. Atoms are overwritten in place, the following atoms
+     * are shifted at most once, by the difference of sizes
+     *
+     * @param band
+     * @param replacement
+     */
+    void replaceAtoms(int band, Object[] replacement) {
+        int size = bandSize(band);
+        int delta = replacement.length - size;
+        int at = bandStart(band);
+        if (delta > 0) {
+            ensureAtomsCapacity(atomsCount + delta);
+        }
+        if (delta != 0) {
+            System.arraycopy(atoms, at + size, atoms, at + replacement.length, atomsCount - at - size);
+            if (delta < 0) {
+                Arrays.fill(atoms, atomsCount + delta, atomsCount, null);
+            }
+            atomsCount += delta;
+            for (int b = band; b < bandsCount; b++) {
+                bandEnds[b] += delta;
+            }
+        }
+        for (int i = 0; i < replacement.length; i++) {
+            atoms[at + i] = (Atom) replacement[i];
+        }
+    }
+
+    /**
+     * Attaches a band view at the given position, moving its state into chain arrays
+     *
+     * @param index
+     * @param view
+     */
+    private void attach(int index, CompactBand view) {
+        if (view.getOwner() == this) {
+            // The index was counted with the view still in place
+            int previous = view.getIndex();
+            detach(previous);
+            if (index > previous) --index;
+        } else if (view.getOwner() != null) {
+            view.getOwner().remove(view);
+        }
+        ensureBandsCapacity(bandsCount + 1);
+        int tail = bandsCount - index;
+        System.arraycopy(bandIds, index, bandIds, index + 1, tail);
+        System.arraycopy(bandTypes, index, bandTypes, index + 1, tail);
+        System.arraycopy(bandStyles, index, bandStyles, index + 1, tail);
+        System.arraycopy(bandEnds, index, bandEnds, index + 1, tail);
+        System.arraycopy(views, index, views, index + 1, tail);
+        bandEnds[index] = bandStart(index);
+        views[index] = view;
+        ++bandsCount;
+        reindex(index);
+
+        bandIds[index] = view.getId();
+        bandTypes[index] = typeOrdinal(view.getType());
+        bandStyles[index] = view.getStyles();
+        Object[] bandAtoms = view.getAtoms() == null ? new Object[0] : view.getAtoms().toArray();
+        view.attached(this, index);
+        insertAtoms(index, 0, bandAtoms);
+    }
+
+    /**
+     * Detaches a band view, moving its state back to the view object
+     *
+     * @param index
+     * @return detached band view
+     */
+    private CompactBand detach(int index) {
+        CompactBand view = views[index];
+        view.detached();
+        removeAtoms(index, 0, bandSize(index));
+
+        int tail = bandsCount - index - 1;
+        System.arraycopy(bandIds, index + 1, bandIds, index, tail);
+        System.arraycopy(bandTypes, index + 1, bandTypes, index, tail);
+        System.arraycopy(bandStyles, index + 1, bandStyles, index, tail);
+        System.arraycopy(bandEnds, index + 1, bandEnds, index, tail);
+        System.arraycopy(views, index + 1, views, index, tail);
+        --bandsCount;
+        bandIds[bandsCount] = null;
+        bandStyles[bandsCount] = null;
+        views[bandsCount] = null;
+        reindex(index);
+        return view;
+    }
+
+    private void reindex(int from) {
+        for (int b = from; b < bandsCount; b++) {
+            views[b].setIndex(b);
+        }
+    }
+
+    private int typeOrdinal(String type) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == null ? type == null : types[i].equals(type)) return i;
+        }
+        types = Arrays.copyOf(types, types.length + 1);
+        types[types.length - 1] = type;
+        return types.length - 1;
+    }
+
+    private void ensureAtomsCapacity(int capacity) {
+        if (capacity > atoms.length) {
+            atoms = Arrays.copyOf(atoms, Math.max(capacity, atoms.length * 2));
+        }
+    }
+
+    private void ensureBandsCapacity(int capacity) {
+        if (capacity > bandIds.length) {
+            int size = Math.max(capacity, bandIds.length * 2);
+            bandIds = Arrays.copyOf(bandIds, size);
+            bandTypes = Arrays.copyOf(bandTypes, size);
+            bandStyles = Arrays.copyOf(bandStyles, size);
+            bandEnds = Arrays.copyOf(bandEnds, size);
+            views = Arrays.copyOf(views, size);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String>[] newStylesArray(int size) {
+        return new Map[size];
+    }
+
+    @Override
+    public Band get(int index) {
+        checkIndex(index, bandsCount);
+        return views[index];
+    }
+
+    @Override
+    public int size() {
+        return bandsCount;
+    }
+
+    @Override
+    public void add(int index, Band band) {
+        checkIndex(index, bandsCount + 1);
+        if (!(band instanceof CompactBand)) {
+            throw new IllegalArgumentException("CompactChain accepts only CompactBand instances, use CompactBandFactory");
+        }
+        ++modCount;
+        attach(index, (CompactBand) band);
+    }
+
+    @Override
+    public Band remove(int index) {
+        checkIndex(index, bandsCount);
+        ++modCount;
+        return detach(index);
+    }
+
+    @Override
+    public Band set(int index, Band band) {
+        Band old = remove(index);
+        add(index, band);
+        return old;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof CompactBand && ((CompactBand) o).getOwner() == this) {
+            return ((CompactBand) o).getIndex();
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Band> c) {
+        Object[] added = c.toArray();
+        for (Object b : added) {
+            add(index++, (Band) b);
+        }
+        return added.length > 0;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            remove(i);
+        }
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bandsCount);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package infra.chains.impl;
+
+import infra.chains.Band;
+import infra.chains.Chain;
+
+import java.util.List;
+
+/**
+ * Chain that keeps all of its bands and atoms in flat arrays: band ids, type ordinals, styles and
+ * band boundaries are stored per band, atoms of all bands are stored in a single array.
+ * Bands are exposed as {@link CompactBand} views, so ChainsManager works on it unchanged,
+ * provided that it builds bands with {@link CompactBandFactory}.
+ * The single atoms array is the trade-off for density: adding or removing atoms or bands shifts all
+ * the atoms after the edited place, so an edit costs O(atoms of a chain) rather than O(atoms of a band).
+ * It suits chains which are read much more often than edited, like stored or rendered ones.
+ * Band views don't refer to the chain object, so indexes and listeners keeping bands of a chain
+ * weakly keyed by it don't prevent it from being collected
+ *
+ * @author alari
+ * @since 10/19/26 12:40 PM
+ */
+public class CompactChain implements Chain<Band> {
+    private final CompactBands bands = new CompactBands();
+
+    public String toString() {
+        return "CompactChain:" + bands.size() + "/" + bands.getAtomsCount();
+    }
+
+    /**
+     * Returns a live view of chain bands
+     *
+     * @return list of bands
+     */
+    public List<Band> getBands() {
+        return bands;
+    }
+
+    /**
+     * Replaces all chain bands. Bands of other implementations are copied
+     *
+     * @param bands
+     */
+    public void setBands(List<Band> bands) {
+        this.bands.setAll(bands);
+    }
+
+    /**
+     * @return total number of atoms in a chain
+     */
+    public int getAtomsCount() {
+        return bands.getAtomsCount();
+    }
+}
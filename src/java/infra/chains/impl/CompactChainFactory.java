@@ -0,0 +1,15 @@
+package infra.chains.impl;
+
+import infra.chains.Chain;
+import infra.chains.ChainFactory;
+
+/**
+ * @author alari
+ * @since 10/19/26 1:10 PM
+ */
+public class CompactChainFactory implements ChainFactory {
+    @Override
+    public Chain buildChain() {
+        return new CompactChain();
+    }
+}
@@ -0,0 +1,748 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.ca.AtomPush;
+import infra.ca.ex.CreativeAtomException;
+import infra.chains.Band;
+import infra.chains.BandFactory;
+import infra.chains.Chain;
+import infra.chains.ChainFactory;
+import infra.chains.RoutingChainsManager;
+import infra.chains.cluster.ChainChange;
+import infra.chains.cluster.ChainCommand;
+import infra.chains.cluster.ChainCommand.Operation;
+import infra.chains.cluster.ChainNode;
+import infra.chains.cluster.ChainTransport;
+import infra.chains.cluster.ConsistentHash;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainEventSource;
+import infra.chains.event.ChainListener;
+import infra.chains.ex.NotFoundInChainException;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes chain mutations to owner nodes. The owner applies a mutation with a local ChainsManager while
+ * holding a chain lock, so concurrent edits from different nodes are applied one after another; chain
+ * events of the call are then sent to other nodes and applied to their replicas by band ids and positions.
+ * Reads of a replica take the same lock, so they never see a change half applied.
+ * Listeners of this manager get the changes of local replicas, whichever node made them.
+ * When nodes join or leave, only chains whose owner changed are handed over
+ *
+ * @author alari
+ * @since 10/19/26 10:40 PM
+ */
+public class RoutingChainsManagerImpl<C extends Chain<B>, B extends Band<A>, A extends Atom, AP extends AtomPush> implements RoutingChainsManager<C, B, A, AP>, ChainEventSource<C>, ChainNode<C> {
+    // Forwards between nodes with the same view of the ring, and during a rebalance
+    private static final int MAX_HOPS = 3;
+
+    private final ChainsManagerImpl<C, B, A, AP> chainsManager;
+    private final String node;
+    private final ChainTransport<C> transport;
+
+    @Autowired
+    private ChainFactory<C> chainFactory;
+    @Autowired
+    private BandFactory<B> bandFactory;
+
+    private volatile ConsistentHash ring;
+
+    private final Map<String, C> chains = new ConcurrentHashMap<String, C>();
+    private final Map<C, String> keys = Collections.synchronizedMap(new IdentityHashMap<C, String>());
+
+    private final ChainEventDispatcher events = new ChainEventDispatcher();
+
+    public RoutingChainsManagerImpl(ChainsManagerImpl<C, B, A, AP> chainsManager, String node, ChainTransport<C> transport) {
+        this(chainsManager, node, transport, new ConsistentHash());
+    }
+
+    public RoutingChainsManagerImpl(ChainsManagerImpl<C, B, A, AP> chainsManager, String node, ChainTransport<C> transport, ConsistentHash ring) {
+        this.chainsManager = chainsManager;
+        this.node = node;
+        this.transport = transport;
+        this.ring = ring.withNode(node);
+        chainsManager.addChainListener(new ChainListener() {
+            public void onChainEvents(List<ChainEvent> changes) {
+                changed(changes);
+            }
+        }, true);
+    }
+
+    public void register(String key, C chain) {
+        C previous = chains.put(key, chain);
+        if (previous != null) {
+            keys.remove(previous);
+        }
+        keys.put(chain, key);
+    }
+
+    public void unregister(String key) {
+        C chain = chains.remove(key);
+        if (chain != null) {
+            keys.remove(chain);
+        }
+    }
+
+    public C getChain(String key) {
+        return chains.get(key);
+    }
+
+    public String getOwner(String key) {
+        return ring.owner(key);
+    }
+
+    public void nodeJoined(String node) {
+        rebalance(ring.withNode(node));
+    }
+
+    public void nodeLeft(String node) {
+        rebalance(ring.withoutNode(node));
+    }
+
+    public Object execute(ChainCommand command) throws Exception {
+        String owner = ring.owner(command.getChainKey());
+        if (!owner.equals(node)) {
+            if (command.getHops() >= MAX_HOPS) {
+                throw new IllegalStateException("Command " + command + " was forwarded " + command.getHops() +
+                        " times, nodes don't agree on the owner of " + command.getChainKey());
+            }
+            return transport.forward(owner, command.forwarded());
+        }
+
+        Object[] args = command.getArguments().clone();
+        List<C> locked = new ArrayList<C>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof ChainCommand.ChainRef) {
+                String key = ((ChainCommand.ChainRef) args[i]).getKey();
+                C chain = chains.get(key);
+                if (chain == null) {
+                    throw new IllegalStateException("Chain " + key + " is unknown to its owner " + node);
+                }
+                if (!ring.owner(key).equals(node)) {
+                    throw new IllegalStateException("Chains of a command should have the same owner: " + command);
+                }
+                args[i] = chain;
+                locked.add(chain);
+            }
+        }
+        Collections.sort(locked, new Comparator<C>() {
+            public int compare(C a, C b) {
+                return keys.get(a).compareTo(keys.get(b));
+            }
+        });
+        return performLocked(locked, 0, command.getOperation(), args);
+    }
+
+    public void applyChanges(String chainKey, List<ChainChange> changes) {
+        C chain = chains.get(chainKey);
+        if (chain == null) return;
+        synchronized (chain) {
+            try {
+                chainsManager.replay(chain, new Replicated(chain, changes.iterator()));
+            } catch (RuntimeException e) {
+                // Changes applied before the failed one are kept, indexes are rebuilt for the replica as it is
+                chainsManager.reindex(chain);
+                throw new IllegalStateException("Replica of " + chainKey + " is out of sync", e);
+            }
+        }
+    }
+
+    public void receive(String chainKey, C chain) {
+        C replica = chains.get(chainKey);
+        if (replica == null) {
+            register(chainKey, copy(chain));
+            return;
+        }
+        synchronized (replica) {
+            chainsManager.replay(replica, replacement(replica, chain));
+        }
+    }
+
+    public C buildChain() throws IllegalAccessException, InstantiationException {
+        return chainsManager.buildChain();
+    }
+
+    public void addAtom(C chain, A atom) throws IllegalAccessException, InstantiationException {
+        try {
+            route(Operation.ADD_ATOM, chain, atom);
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public A pushAtom(C chain, AP data) throws CreativeAtomException, InstantiationException, IllegalAccessException {
+        try {
+            return (A) route(Operation.PUSH_ATOM, chain, data);
+        } catch (CreativeAtomException e) {
+            throw e;
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public A pushAtom(C chain, AP data, String bandId) throws CreativeAtomException, InstantiationException, IllegalAccessException {
+        try {
+            return (A) route(Operation.PUSH_ATOM_TO_BAND, chain, data, bandId);
+        } catch (CreativeAtomException e) {
+            throw e;
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public A getAtom(C chain, String id) throws NotFoundInChainException {
+        synchronized (chain) {
+            return chainsManager.getAtom(chain, id);
+        }
+    }
+
+    public void removeAtom(C chain, String id) throws NotFoundInChainException {
+        try {
+            route(Operation.REMOVE_ATOM, chain, id);
+        } catch (NotFoundInChainException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void deleteAtom(C chain, String id) throws CreativeAtomException {
+        try {
+            route(Operation.DELETE_ATOM, chain, id);
+        } catch (CreativeAtomException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void forUpdate(C chain) throws CreativeAtomException {
+        synchronized (chain) {
+            chainsManager.forUpdate(chain);
+        }
+    }
+
+    public void forRender(C chain) throws CreativeAtomException {
+        synchronized (chain) {
+            chainsManager.forRender(chain);
+        }
+    }
+
+    public void delete(C chain) throws CreativeAtomException {
+        try {
+            route(Operation.DELETE, chain);
+        } catch (CreativeAtomException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public B getBand(C chain, String bandId) throws NotFoundInChainException {
+        synchronized (chain) {
+            return chainsManager.getBand(chain, bandId);
+        }
+    }
+
+    public B getAtomBand(C chain, String atomId) throws NotFoundInChainException {
+        synchronized (chain) {
+            return chainsManager.getAtomBand(chain, atomId);
+        }
+    }
+
+    public void moveInBand(C chain, String atomId, int moveToPosition) throws NotFoundInChainException {
+        try {
+            route(Operation.MOVE_IN_BAND, chain, atomId, moveToPosition);
+        } catch (NotFoundInChainException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void moveBand(C chain, String bandId, int moveToPosition) {
+        try {
+            route(Operation.MOVE_BAND, chain, bandId, moveToPosition);
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void moveToBand(C chain, String atomId, String bandId) throws NotFoundInChainException, IllegalAccessException, InstantiationException {
+        try {
+            route(Operation.MOVE_TO_BAND, chain, atomId, bandId);
+        } catch (NotFoundInChainException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void moveToBand(C chain, String atomId, String bandId, int moveToPosition) throws NotFoundInChainException, InstantiationException, IllegalAccessException {
+        try {
+            route(Operation.MOVE_TO_BAND_POSITION, chain, atomId, bandId, moveToPosition);
+        } catch (NotFoundInChainException e) {
+            throw e;
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void moveAtom(C chain, String atomId, int moveToPosition) throws NotFoundInChainException, InstantiationException, IllegalAccessException {
+        try {
+            route(Operation.MOVE_ATOM, chain, atomId, moveToPosition);
+        } catch (NotFoundInChainException e) {
+            throw e;
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void setBandStyle(C chain, String bandId, Map<String, String> style) throws NotFoundInChainException {
+        try {
+            route(Operation.SET_BAND_STYLE, chain, bandId, style);
+        } catch (NotFoundInChainException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public void moveRange(C chain, int fromPosition, int toPosition, int moveToPosition) throws InstantiationException, IllegalAccessException {
+        try {
+            route(Operation.MOVE_RANGE, chain, fromPosition, toPosition, moveToPosition);
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    /**
+     * Splices chains owned by the same node only
+     */
+    public void splice(C sourceChain, int fromPosition, int toPosition, C targetChain, int position) throws InstantiationException, IllegalAccessException {
+        try {
+            route(Operation.SPLICE, sourceChain, fromPosition, toPosition, targetChain, position);
+        } catch (InstantiationException e) {
+            throw e;
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw unexpected(e);
+        }
+    }
+
+    public C fork(C chain) throws InstantiationException, IllegalAccessException {
+        synchronized (chain) {
+            return chainsManager.fork(chain);
+        }
+    }
+
+    /**
+     * Iterates over a snapshot, as a replica may be changed by other nodes while iterated
+     */
+    public Iterator<B> getBandsByType(C chain, String type) {
+        synchronized (chain) {
+            return snapshot(chainsManager.getBandsByType(chain, type));
+        }
+    }
+
+    /**
+     * Iterates over a snapshot, as a replica may be changed by other nodes while iterated
+     */
+    public Iterator<A> getAtomsByType(C chain, String type) {
+        synchronized (chain) {
+            return snapshot(chainsManager.getAtomsByType(chain, type));
+        }
+    }
+
+    public void reindex(C chain) {
+        synchronized (chain) {
+            chainsManager.reindex(chain);
+        }
+    }
+
+    public void addChainListener(ChainListener listener, boolean batched) {
+        events.addListener(listener, batched);
+    }
+
+    public void removeChainListener(ChainListener listener) {
+        events.removeListener(listener);
+    }
+
+    public void addChainListener(C chain, ChainListener listener, boolean batched) {
+        synchronized (chain) {
+            chainsManager.ownAtoms(chain);
+        }
+        events.addListener(chain, listener, batched);
+    }
+
+    public void removeChainListener(C chain, ChainListener listener) {
+        events.removeListener(chain, listener);
+    }
+
+    /**
+     * Executes a mutation on the owner of its first chain argument. Mutations of chains that were not
+     * registered are executed locally
+     *
+     * @param operation
+     * @param args
+     * @return method result
+     * @throws Exception
+     */
+    private Object route(Operation operation, Object... args) throws Exception {
+        String key = keys.get(args[0]);
+        if (key == null) {
+            List<C> locked = chains(args);
+            Collections.sort(locked, new Comparator<C>() {
+                public int compare(C a, C b) {
+                    int x = System.identityHashCode(a), y = System.identityHashCode(b);
+                    return x < y ? -1 : x > y ? 1 : 0;
+                }
+            });
+            return performLocked(locked, 0, operation, args);
+        }
+        Object[] refs = args.clone();
+        for (int i = 0; i < refs.length; i++) {
+            if (refs[i] instanceof Chain) {
+                String k = keys.get(refs[i]);
+                if (k == null) {
+                    throw new IllegalArgumentException("Chain is not registered: " + refs[i]);
+                }
+                refs[i] = new ChainCommand.ChainRef(k);
+            }
+        }
+        return execute(new ChainCommand(key, operation, refs));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<C> chains(Object[] args) {
+        List<C> chains = new ArrayList<C>();
+        for (Object arg : args) {
+            if (arg instanceof Chain) chains.add((C) arg);
+        }
+        return chains;
+    }
+
+    /**
+     * Locks sorted chains one by one and performs an operation
+     */
+    private Object performLocked(List<C> locked, int from, Operation operation, Object[] args) throws Exception {
+        if (from == locked.size()) {
+            return perform(operation, args);
+        }
+        synchronized (locked.get(from)) {
+            return performLocked(locked, from + 1, operation, args);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object perform(Operation operation, Object[] args) throws Exception {
+        C chain = (C) args[0];
+        switch (operation) {
+            case ADD_ATOM:
+                chainsManager.addAtom(chain, (A) args[1]);
+                return null;
+            case PUSH_ATOM:
+                return chainsManager.pushAtom(chain, (AP) args[1]);
+            case PUSH_ATOM_TO_BAND:
+                return chainsManager.pushAtom(chain, (AP) args[1], (String) args[2]);
+            case REMOVE_ATOM:
+                chainsManager.removeAtom(chain, (String) args[1]);
+                return null;
+            case DELETE_ATOM:
+                chainsManager.deleteAtom(chain, (String) args[1]);
+                return null;
+            case DELETE:
+                chainsManager.delete(chain);
+                return null;
+            case MOVE_IN_BAND:
+                chainsManager.moveInBand(chain, (String) args[1], (Integer) args[2]);
+                return null;
+            case MOVE_BAND:
+                chainsManager.moveBand(chain, (String) args[1], (Integer) args[2]);
+                return null;
+            case MOVE_TO_BAND:
+                chainsManager.moveToBand(chain, (String) args[1], (String) args[2]);
+                return null;
+            case MOVE_TO_BAND_POSITION:
+                chainsManager.moveToBand(chain, (String) args[1], (String) args[2], (Integer) args[3]);
+                return null;
+            case MOVE_ATOM:
+                chainsManager.moveAtom(chain, (String) args[1], (Integer) args[2]);
+                return null;
+            case SET_BAND_STYLE:
+                chainsManager.setBandStyle(chain, (String) args[1], (Map<String, String>) args[2]);
+                return null;
+            case MOVE_RANGE:
+                chainsManager.moveRange(chain, (Integer) args[1], (Integer) args[2], (Integer) args[3]);
+                return null;
+            case SPLICE:
+                chainsManager.splice(chain, (Integer) args[1], (Integer) args[2], (C) args[3], (Integer) args[4]);
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private static <T> Iterator<T> snapshot(Iterator<T> iterator) {
+        List<T> items = new ArrayList<T>();
+        while (iterator.hasNext()) items.add(iterator.next());
+        return items.iterator();
+    }
+
+    private RuntimeException unexpected(Exception e) {
+        return e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+    }
+
+    /**
+     * Sends changes of chains this node owns to other nodes, fires changes of all the chains for own listeners
+     *
+     * @param changes events of a local ChainsManager call, or of changes applied to replicas
+     */
+    private void changed(List<ChainEvent> changes) {
+        Map<Chain, List<ChainEvent>> byChain = new LinkedHashMap<Chain, List<ChainEvent>>();
+        for (ChainEvent e : changes) {
+            List<ChainEvent> list = byChain.get(e.getChain());
+            if (list == null) {
+                list = new ArrayList<ChainEvent>();
+                byChain.put(e.getChain(), list);
+            }
+            list.add(e);
+        }
+        for (Map.Entry<Chain, List<ChainEvent>> e : byChain.entrySet()) {
+            String key = keys.get(e.getKey());
+            if (key == null || !ring.owner(key).equals(node)) continue;
+            List<ChainChange> replicated = new ArrayList<ChainChange>(e.getValue().size());
+            for (ChainEvent event : e.getValue()) replicated.add(ChainChange.of(event));
+            for (String n : ring.getNodes()) {
+                if (!n.equals(node)) transport.replicate(n, key, replicated);
+            }
+        }
+        fireAll(changes);
+    }
+
+    private void fireAll(List<ChainEvent> changes) {
+        try {
+            for (ChainEvent e : changes) {
+                if (events.isActive(e.getChain())) events.fire(e);
+            }
+        } finally {
+            events.flush();
+        }
+    }
+
+    /**
+     * Switches to a new ring, hands over chains this node doesn't own anymore
+     *
+     * @param next
+     */
+    private synchronized void rebalance(ConsistentHash next) {
+        ConsistentHash previous = ring;
+        ring = next;
+        for (Map.Entry<String, C> e : chains.entrySet()) {
+            String key = e.getKey();
+            if (!previous.owner(key).equals(node)) continue;
+            String owner = next.owner(key);
+            if (!owner.equals(node)) {
+                synchronized (e.getValue()) {
+                    transport.transfer(owner, key, e.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves an owner's change against a local replica
+     *
+     * @param chain   replica
+     * @param c       change made by an owner
+     * @param removed bands removed from the replica by previous changes of the call
+     * @return the same change as an event of the replica, to be replayed
+     * @throws NotFoundInChainException if a band is missing in the replica
+     */
+    private ChainEvent resolve(C chain, ChainChange c, Map<String, B> removed) throws NotFoundInChainException {
+        List<B> bands = chain.getBands();
+        B from;
+        B to;
+        switch (c.getType()) {
+            case ATOM_ADDED:
+                to = band(chain, c.getToBandId(), removed);
+                return ChainEvent.atomAdded(chain, c.getAtom(), to, c.getToPosition());
+            case ATOM_REMOVED:
+                from = band(chain, c.getFromBandId(), removed);
+                return ChainEvent.atomRemoved(chain, from.getAtoms().get(c.getFromPosition()), from, c.getFromPosition());
+            case ATOM_MOVED:
+                from = band(chain, c.getFromBandId(), removed);
+                to = band(chain, c.getToBandId(), removed);
+                return ChainEvent.atomMoved(chain, from.getAtoms().get(c.getFromPosition()), from, c.getFromPosition(), to, c.getToPosition());
+            case BAND_CREATED:
+                to = buildBand(c.getToBandId(), c.getToBandType(), c.getStyles());
+                removed.remove(to.getId().toLowerCase());
+                return ChainEvent.bandCreated(chain, to, c.getToPosition());
+            case BAND_REMOVED:
+                from = bands.get(c.getFromPosition());
+                removed.put(from.getId().toLowerCase(), from);
+                return ChainEvent.bandRemoved(chain, from, c.getFromPosition());
+            case BAND_MOVED:
+                from = bands.get(c.getFromPosition());
+                return ChainEvent.bandMoved(chain, from, c.getFromPosition(), c.getToPosition());
+            case BAND_SPLIT:
+                from = band(chain, c.getFromBandId(), removed);
+                to = buildBand(c.getToBandId(), c.getToBandType(), c.getStyles());
+                removed.remove(to.getId().toLowerCase());
+                return ChainEvent.bandSplit(chain, from, c.getFromPosition(), to, c.getToPosition());
+            case BAND_MERGED:
+                to = band(chain, c.getToBandId(), removed);
+                from = bands.get(c.getFromPosition());
+                removed.put(from.getId().toLowerCase(), from);
+                return ChainEvent.bandMerged(chain, from, c.getFromPosition(), to, c.getToPosition());
+            case BAND_RESTYLED:
+                to = band(chain, c.getToBandId(), removed);
+                return ChainEvent.bandRestyled(chain, to, to.getStyles(),
+                        c.getStyles() == null ? null : new HashMap<String, String>(c.getStyles()));
+            default:
+                throw new IllegalArgumentException("Unknown change: " + c);
+        }
+    }
+
+    private B band(C chain, String bandId, Map<String, B> removed) throws NotFoundInChainException {
+        B band = removed.get(bandId.toLowerCase());
+        return band == null ? chainsManager.getBand(chain, bandId) : band;
+    }
+
+    /**
+     * Builds an empty band with the id, type and styles of an owner's band
+     */
+    private B buildBand(String id, String type, Map<String, String> styles) {
+        B band = bandFactory.buildBand();
+        band.setId(id);
+        band.setType(type);
+        band.setStyles(styles == null ? null : new HashMap<String, String>(styles));
+        band.setAtoms(new ArrayList<A>());
+        return band;
+    }
+
+    /**
+     * Makes a replica of a chain received from another node, keeping band ids
+     */
+    private C copy(C source) {
+        C chain = chainFactory.buildChain();
+        List<B> bands = new LinkedList<B>();
+        if (source.getBands() != null) {
+            for (B b : source.getBands()) {
+                B band = buildBand(b.getId(), b.getType(), b.getStyles());
+                band.getAtoms().addAll(b.getAtoms());
+                bands.add(band);
+            }
+        }
+        chain.setBands(bands);
+        return chain;
+    }
+
+    /**
+     * Changes bringing a replica to the state of a received chain: its bands are emptied and removed,
+     * then bands of the received chain are created with their atoms, keeping band ids
+     *
+     * @param replica
+     * @param source  chain received from another node
+     * @return changes of the replica, in order
+     */
+    private List<ChainEvent> replacement(C replica, C source) {
+        List<ChainEvent> changes = new ArrayList<ChainEvent>();
+        if (replica.getBands() != null) {
+            ListIterator<B> bands = replica.getBands().listIterator(replica.getBands().size());
+            while (bands.hasPrevious()) {
+                int position = bands.previousIndex();
+                B band = bands.previous();
+                for (int i = band.getAtoms().size() - 1; i >= 0; i--) {
+                    changes.add(ChainEvent.atomRemoved(replica, band.getAtoms().get(i), band, i));
+                }
+                changes.add(ChainEvent.bandRemoved(replica, band, position));
+            }
+        }
+        if (source.getBands() != null) {
+            int position = 0;
+            for (B b : source.getBands()) {
+                B band = buildBand(b.getId(), b.getType(), b.getStyles());
+                changes.add(ChainEvent.bandCreated(replica, band, position++));
+                int i = 0;
+                for (A a : b.getAtoms()) changes.add(ChainEvent.atomAdded(replica, a, band, i++));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Owner's changes resolved against a replica one by one, as they are replayed
+     */
+    private class Replicated implements Iterator<ChainEvent> {
+        private final C chain;
+        private final Iterator<ChainChange> changes;
+        // Bands removed within the call may still be referred to by following changes
+        private final Map<String, B> removed = new HashMap<String, B>();
+
+        Replicated(C chain, Iterator<ChainChange> changes) {
+            this.chain = chain;
+            this.changes = changes;
+        }
+
+        public boolean hasNext() {
+            return changes.hasNext();
+        }
+
+        public ChainEvent next() {
+            ChainChange c = changes.next();
+            try {
+                return resolve(chain, c, removed);
+            } catch (NotFoundInChainException e) {
+                throw new IllegalStateException("Change doesn't match replica: " + c, e);
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package infra.chains.impl;
+
+import infra.ca.Atom;
+import infra.chains.AtomCopier;
+import infra.chains.util.WeakIdentityMap;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Copy-on-write list of band atoms, lets a forked band read atoms of its source band until it's changed.
+ * An owner list lends its atoms through a {@link Share}; a borrower list reads them, and its first write
+ * replaces them with copies of its own. An owner list writing while its atoms are borrowed copies the list,
+ * keeping the atoms, so borrowers still see the atoms they were forked with
+ *
+ * @author alari
+ * @since 10/19/26 8:10 PM
+ */
+class SharedAtomsList<A extends Atom> extends AbstractList<A> implements RandomAccess {
+    private volatile List<A> atoms;
+    // Share the atoms are borrowed from, null if the list owns its atoms
+    private volatile Share<A> borrowed;
+    // Share of the current atoms of an owner list
+    private Share<A> lent;
+
+    /**
+     * Adopts a list as a backing one; it should not be modified directly afterwards
+     *
+     * @param atoms
+     */
+    SharedAtomsList(List<A> atoms) {
+        this.atoms = atoms;
+    }
+
+    private SharedAtomsList(Share<A> borrowed) {
+        this.atoms = borrowed.atoms;
+        this.borrowed = borrowed;
+    }
+
+    /**
+     * Lends atoms of the list to a fork. Borrowed atoms are lent on behalf of their owner
+     *
+     * @param copier to copy atoms for borrowers
+     * @return share to borrow atoms from
+     */
+    synchronized Share<A> lend(AtomCopier<A> copier) {
+        if (borrowed != null) return borrowed;
+        if (lent == null) {
+            lent = new Share<A>(atoms, copier);
+        }
+        return lent;
+    }
+
+    /**
+     * @return true if the list reads atoms of another chain
+     */
+    boolean isBorrowed() {
+        return borrowed != null;
+    }
+
+    /**
+     * Replaces borrowed atoms with copies of its own, does nothing if the list owns its atoms
+     */
+    synchronized void own() {
+        Share<A> share = borrowed;
+        if (share == null) return;
+        atoms = share.copies();
+        borrowed = null;
+        share.returned(this);
+    }
+
+    @Override
+    public A get(int index) {
+        return atoms.get(index);
+    }
+
+    @Override
+    public int size() {
+        return atoms.size();
+    }
+
+    @Override
+    public A set(int index, A atom) {
+        return writable().set(index, atom);
+    }
+
+    @Override
+    public void add(int index, A atom) {
+        ++modCount;
+        writable().add(index, atom);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends A> c) {
+        ++modCount;
+        return writable().addAll(index, c);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends A> c) {
+        return addAll(size(), c);
+    }
+
+    @Override
+    public A remove(int index) {
+        ++modCount;
+        return writable().remove(index);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        ++modCount;
+        writable().subList(fromIndex, toIndex).clear();
+    }
+
+    /**
+     * Returns a list to write to: borrowed atoms are copied, lent ones are kept in a list of its own
+     *
+     * @return backing list owned by this list only
+     */
+    private synchronized List<A> writable() {
+        if (borrowed != null) {
+            own();
+        } else if (lent != null) {
+            if (lent.isBorrowed()) {
+                atoms = new ArrayList<A>(atoms);
+            }
+            lent = null;
+        }
+        return atoms;
+    }
+
+    /**
+     * Atoms of a band lent to its forks. Borrowers are kept weakly, so forks are collected as usual
+     */
+    static class Share<A extends Atom> {
+        private final List<A> atoms;
+        private final AtomCopier<A> copier;
+        private final WeakIdentityMap<SharedAtomsList<A>, Boolean> borrowers = new WeakIdentityMap<SharedAtomsList<A>, Boolean>();
+
+        private Share(List<A> atoms, AtomCopier<A> copier) {
+            this.atoms = atoms;
+            this.copier = copier;
+        }
+
+        /**
+         * @return a new list reading the shared atoms
+         */
+        SharedAtomsList<A> borrow() {
+            SharedAtomsList<A> list = new SharedAtomsList<A>(this);
+            borrowers.put(list, Boolean.TRUE);
+            return list;
+        }
+
+        /**
+         * @return true if some list still reads the shared atoms
+         */
+        boolean isBorrowed() {
+            return !borrowers.isEmpty();
+        }
+
+        /**
+         * @param atoms identity set
+         * @return true if any of the atoms is shared
+         */
+        boolean containsAny(Set<A> atoms) {
+            for (A a : this.atoms) if (atoms.contains(a)) return true;
+            return false;
+        }
+
+        /**
+         * Makes all the borrowers copy the atoms, so the owner may delete their contents
+         */
+        void release() {
+            for (SharedAtomsList<A> list : borrowers.keys()) list.own();
+        }
+
+        private List<A> copies() {
+            List<A> copies = new ArrayList<A>(atoms.size());
+            for (A a : atoms) copies.add(copier.copy(a));
+            return copies;
+        }
+
+        private void returned(SharedAtomsList<A> list) {
+            borrowers.remove(list);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package infra.chains.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import infra.ca.Atom;
+
+import java.io.IOException;
+
+/**
+ * Writes atoms into chain JSON and reads them back, token by token
+ *
+ * @author alari
+ * @since 10/19/26 8:40 PM
+ */
+public interface AtomSerializer<A extends Atom> {
+    /**
+     * Writes an atom as a single JSON value, usually an object
+     *
+     * @param atom
+     * @param json
+     * @throws IOException
+     */
+    public void write(A atom, JsonGenerator json) throws IOException;
+
+    /**
+     * Reads an atom. Parser is positioned on the first token of an atom value and should be left
+     * on its last token
+     *
+     * @param json
+     * @return atom
+     * @throws IOException
+     */
+    public A read(JsonParser json) throws IOException;
+}
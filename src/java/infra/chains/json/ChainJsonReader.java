@@ -0,0 +1,186 @@
+package infra.chains.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.BandFactory;
+import infra.chains.Chain;
+import infra.chains.ChainFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Reads chains written by {@link ChainJsonWriter} straight from a stream. Each band is built while
+ * its atoms are read and added to a chain as soon as it's complete; unknown fields are skipped
+ *
+ * @author alari
+ * @since 10/19/26 8:55 PM
+ */
+public class ChainJsonReader<C extends Chain<B>, B extends Band<A>, A extends Atom> {
+    private final JsonFactory jsonFactory;
+    private final ChainFactory<C> chainFactory;
+    private final BandFactory<B> bandFactory;
+    private final AtomSerializer<A> atomSerializer;
+
+    public ChainJsonReader(ChainFactory<C> chainFactory, BandFactory<B> bandFactory, AtomSerializer<A> atomSerializer) {
+        this(new JsonFactory(), chainFactory, bandFactory, atomSerializer);
+    }
+
+    public ChainJsonReader(JsonFactory jsonFactory, ChainFactory<C> chainFactory, BandFactory<B> bandFactory, AtomSerializer<A> atomSerializer) {
+        this.jsonFactory = jsonFactory;
+        this.chainFactory = chainFactory;
+        this.bandFactory = bandFactory;
+        this.atomSerializer = atomSerializer;
+    }
+
+    /**
+     * Reads a chain from a stream. The stream is not closed
+     *
+     * @param in
+     * @return a new chain
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public C read(InputStream in) throws IOException, InstantiationException, IllegalAccessException {
+        JsonParser json = jsonFactory.createParser(in);
+        json.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            json.nextToken();
+            C chain = read(json);
+            json.close();
+            return chain;
+        } finally {
+            if (!json.isClosed()) {
+                closeQuietly(json);
+            }
+        }
+    }
+
+    /**
+     * Reads a chain from a reader. The reader is not closed
+     *
+     * @param reader
+     * @return a new chain
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public C read(Reader reader) throws IOException, InstantiationException, IllegalAccessException {
+        JsonParser json = jsonFactory.createParser(reader);
+        json.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            json.nextToken();
+            C chain = read(json);
+            json.close();
+            return chain;
+        } finally {
+            if (!json.isClosed()) {
+                closeQuietly(json);
+            }
+        }
+    }
+
+    /**
+     * Reads a chain object. Parser is positioned on its START_OBJECT and is left on its END_OBJECT
+     *
+     * @param json
+     * @return a new chain
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public C read(JsonParser json) throws IOException, InstantiationException, IllegalAccessException {
+        expect(json, JsonToken.START_OBJECT);
+        C chain = chainFactory.buildChain();
+        chain.setBands(new LinkedList<B>());
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.getCurrentName();
+            json.nextToken();
+            if ("bands".equals(field) && json.getCurrentToken() != JsonToken.VALUE_NULL) {
+                expect(json, JsonToken.START_ARRAY);
+                while (json.nextToken() != JsonToken.END_ARRAY) {
+                    chain.getBands().add(readBand(json));
+                }
+            } else {
+                json.skipChildren();
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Reads a band object. Parser is positioned on its START_OBJECT and is left on its END_OBJECT
+     *
+     * @param json
+     * @return a new band, not yet included into a chain
+     * @throws IOException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public B readBand(JsonParser json) throws IOException, InstantiationException, IllegalAccessException {
+        expect(json, JsonToken.START_OBJECT);
+        B band = bandFactory.buildBand();
+        band.setAtoms(new ArrayList<A>());
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.getCurrentName();
+            JsonToken value = json.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if ("id".equals(field)) {
+                band.setId(json.getText());
+            } else if ("type".equals(field)) {
+                band.setType(json.getText());
+            } else if ("styles".equals(field)) {
+                expect(json, JsonToken.START_OBJECT);
+                Map<String, String> styles = new HashMap<String, String>();
+                while (json.nextToken() == JsonToken.FIELD_NAME) {
+                    String style = json.getCurrentName();
+                    json.nextToken();
+                    styles.put(style, json.getCurrentToken() == JsonToken.VALUE_NULL ? null : json.getText());
+                }
+                band.setStyles(styles);
+            } else if ("atoms".equals(field)) {
+                expect(json, JsonToken.START_ARRAY);
+                while (json.nextToken() != JsonToken.END_ARRAY) {
+                    band.getAtoms().add(atomSerializer.read(json));
+                }
+            } else {
+                json.skipChildren();
+            }
+        }
+        if (band.getId() == null || band.getType() == null) {
+            throw new JsonParseException("Band id and type are required", json.getCurrentLocation());
+        }
+        return band;
+    }
+
+    /**
+     * Closes a parser after a failure, so that a failure to close doesn't hide the original one
+     *
+     * @param json
+     */
+    private static void closeQuietly(JsonParser json) {
+        try {
+            json.close();
+        } catch (IOException e) {
+            // The original failure is being thrown
+        }
+    }
+
+    private void expect(JsonParser json, JsonToken token) throws JsonParseException {
+        if (json.getCurrentToken() != token) {
+            throw new JsonParseException("Expected " + token + ", got " + json.getCurrentToken(), json.getCurrentLocation());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package infra.chains.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes chains as JSON straight into a stream, band by band and atom by atom:
+ * <pre>
+ * {"bands": [{"id": "...", "type": "...", "styles": {...}, "atoms": [...]}, ...]}
+ * </pre>
+ * Atoms are written by an {@link AtomSerializer}
+ *
+ * @author alari
+ * @since 10/19/26 8:45 PM
+ */
+public class ChainJsonWriter<C extends Chain<B>, B extends Band<A>, A extends Atom> {
+    private final JsonFactory jsonFactory;
+    private final AtomSerializer<A> atomSerializer;
+
+    public ChainJsonWriter(AtomSerializer<A> atomSerializer) {
+        this(new JsonFactory(), atomSerializer);
+    }
+
+    public ChainJsonWriter(JsonFactory jsonFactory, AtomSerializer<A> atomSerializer) {
+        this.jsonFactory = jsonFactory;
+        this.atomSerializer = atomSerializer;
+    }
+
+    /**
+     * Writes a chain into a writer. The writer is flushed, but not closed; if writing fails,
+     * the output is left incomplete
+     *
+     * @param chain
+     * @param writer
+     * @throws IOException
+     */
+    public void write(C chain, Writer writer) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            write(chain, json);
+            json.close();
+        } finally {
+            if (!json.isClosed()) {
+                // Writing failed: release the generator without completing the output
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                closeQuietly(json);
+            }
+        }
+    }
+
+    /**
+     * Closes a generator after a failure, so that a failure to close doesn't hide the original one
+     *
+     * @param json
+     */
+    private static void closeQuietly(JsonGenerator json) {
+        try {
+            json.close();
+        } catch (IOException e) {
+            // The original failure is being thrown
+        }
+    }
+
+    /**
+     * Writes a chain as a JSON object
+     *
+     * @param chain
+     * @param json
+     * @throws IOException
+     */
+    public void write(C chain, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeArrayFieldStart("bands");
+        if (chain.getBands() != null) {
+            for (B band : chain.getBands()) writeBand(band, json);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    /**
+     * Writes a band as a JSON object
+     *
+     * @param band
+     * @param json
+     * @throws IOException
+     */
+    public void writeBand(B band, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", band.getId());
+        json.writeStringField("type", band.getType());
+        if (band.getStyles() != null) {
+            json.writeObjectFieldStart("styles");
+            for (Map.Entry<String, String> style : band.getStyles().entrySet()) {
+                json.writeStringField(style.getKey(), style.getValue());
+            }
+            json.writeEndObject();
+        }
+        json.writeArrayFieldStart("atoms");
+        if (band.getAtoms() != null) {
+            for (A atom : band.getAtoms()) atomSerializer.write(atom, json);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,292 @@
+package infra.chains.load;
+
+import infra.ca.Atom;
+import infra.ca.AtomPush;
+import infra.ca.ex.CreativeAtomException;
+import infra.chains.Band;
+import infra.chains.Chain;
+import infra.chains.ChainsManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays editor sessions against a ChainsManager from many threads and measures latency of every operation.
+ * By default every thread edits a chain of its own, as editors work on separate documents; in shared chain mode
+ * all the threads edit a single chain, as co-editors of one document do, serialized by a lock on the chain.
+ * Chains are prefilled up to the configured size before timing starts, one chain per thread at most, and
+ * are edited by all the sessions of a thread one after another
+ *
+ * @author alari
+ * @since 10/19/26 2:30 PM
+ */
+public class EditorLoadSimulator<C extends Chain<B>, B extends Band<A>, A extends Atom, AP extends AtomPush> {
+    private final ChainsManager<C, B, A, AP> chainsManager;
+    private final PushDataSource<AP> pushDataSource;
+
+    private List<EditorSession> sessions = null;
+    private Map<EditorOperation, Integer> mix = EditorSession.defaultMix();
+    private int sessionsPerThread = 10;
+    private int sessionLength = 200;
+    private long seed = 42;
+    private boolean sharedChain = false;
+
+    public EditorLoadSimulator(ChainsManager<C, B, A, AP> chainsManager, PushDataSource<AP> pushDataSource) {
+        this.chainsManager = chainsManager;
+        this.pushDataSource = pushDataSource;
+    }
+
+    /**
+     * Runs the load with the given concurrency and chain size
+     *
+     * @param threads   number of concurrent editors
+     * @param chainSize number of atoms every chain is prefilled with
+     * @return report
+     * @throws InterruptedException
+     * @throws ExecutionException   if any operation failed
+     */
+    public LoadReport run(final int threads, final int chainSize) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<EditorOperation, LatencyRecorder>>> futures = new ArrayList<Future<Map<EditorOperation, LatencyRecorder>>>();
+        long began;
+        long elapsed;
+        try {
+            final C shared;
+            try {
+                shared = sharedChain ? prefill(new Random(seed), chainSize) : null;
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+            for (int t = 0; t < threads; t++) {
+                final Random random = new Random(seed + t);
+                futures.add(executor.submit(new Callable<Map<EditorOperation, LatencyRecorder>>() {
+                    @Override
+                    public Map<EditorOperation, LatencyRecorder> call() throws Exception {
+                        List<EditorSession> own;
+                        C chain;
+                        try {
+                            own = prepareSessions(random, chainSize);
+                            chain = shared == null ? prefill(random, chainSize) : shared;
+                        } finally {
+                            ready.countDown();
+                        }
+                        Map<EditorOperation, LatencyRecorder> recorders = newRecorders();
+                        start.await();
+                        for (EditorSession session : own) {
+                            replay(chain, session, random, recorders);
+                        }
+                        return recorders;
+                    }
+                }));
+            }
+            ready.await();
+            began = System.nanoTime();
+            start.countDown();
+
+            Map<EditorOperation, LatencyRecorder> total = newRecorders();
+            for (Future<Map<EditorOperation, LatencyRecorder>> f : futures) {
+                for (Map.Entry<EditorOperation, LatencyRecorder> e : f.get().entrySet()) {
+                    total.get(e.getKey()).merge(e.getValue());
+                }
+            }
+            elapsed = System.nanoTime() - began;
+            return new LoadReport(threads, chainSize, sharedChain, elapsed, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the load for every combination of chain size and threads count
+     *
+     * @param chainSizes
+     * @param threadCounts
+     * @return reports, chain size after chain size
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public List<LoadReport> sweep(int[] chainSizes, int[] threadCounts) throws InterruptedException, ExecutionException {
+        List<LoadReport> reports = new ArrayList<LoadReport>();
+        for (int size : chainSizes) {
+            for (int threads : threadCounts) {
+                reports.add(run(threads, size));
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Replays a single session against a chain. A shared chain is locked for every step, so latency
+     * includes waiting for other editors
+     *
+     * @param chain
+     * @param session
+     * @param random
+     * @param recorders
+     * @throws CreativeAtomException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    private void replay(C chain, EditorSession session, Random random, Map<EditorOperation, LatencyRecorder> recorders) throws CreativeAtomException, InstantiationException, IllegalAccessException {
+        for (EditorStep step : session.getSteps()) {
+            long latency;
+            if (sharedChain) {
+                long waited = System.nanoTime();
+                synchronized (chain) {
+                    waited = System.nanoTime() - waited;
+                    latency = perform(chain, step, random);
+                }
+                if (latency >= 0) latency += waited;
+            } else {
+                latency = perform(chain, step, random);
+            }
+            if (latency >= 0) {
+                recorders.get(step.getOperation()).record(latency);
+            }
+        }
+    }
+
+    /**
+     * Performs a single step
+     *
+     * @param chain
+     * @param step
+     * @param random
+     * @return operation latency in nanos, or -1 if a step was skipped
+     * @throws CreativeAtomException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    private long perform(C chain, EditorStep step, Random random) throws CreativeAtomException, InstantiationException, IllegalAccessException {
+        // Arguments are resolved before the timer starts
+        int size = atomsCount(chain);
+        if (size == 0 && step.getOperation() != EditorOperation.PUSH) {
+            return -1;
+        }
+        long began;
+        switch (step.getOperation()) {
+            case PUSH:
+                AP data = pushDataSource.buildPush(random);
+                began = System.nanoTime();
+                chainsManager.pushAtom(chain, data);
+                break;
+            case MOVE:
+                String moved = atomAt(chain, step.getFrom() % size).getId();
+                began = System.nanoTime();
+                chainsManager.moveAtom(chain, moved, step.getTo() % (size + 1));
+                break;
+            case STYLE:
+                String bandId = chain.getBands().get(step.getFrom() % chain.getBands().size()).getId();
+                Map<String, String> style = new HashMap<String, String>();
+                style.put("class", "s" + step.getTo());
+                began = System.nanoTime();
+                chainsManager.setBandStyle(chain, bandId, style);
+                break;
+            case REMOVE:
+                String removed = atomAt(chain, step.getFrom() % size).getId();
+                began = System.nanoTime();
+                chainsManager.removeAtom(chain, removed);
+                break;
+            default:
+                began = System.nanoTime();
+                chainsManager.forRender(chain);
+        }
+        return System.nanoTime() - began;
+    }
+
+    private List<EditorSession> prepareSessions(Random random, int chainSize) {
+        if (sessions != null) {
+            List<EditorSession> own = new ArrayList<EditorSession>(sessions);
+            Collections.shuffle(own, random);
+            return own.subList(0, Math.min(sessionsPerThread, own.size()));
+        }
+        List<EditorSession> own = new ArrayList<EditorSession>(sessionsPerThread);
+        for (int i = 0; i < sessionsPerThread; i++) {
+            own.add(EditorSession.synthetic(random, sessionLength, chainSize, mix));
+        }
+        return own;
+    }
+
+    private C prefill(Random random, int chainSize) throws IllegalAccessException, InstantiationException, CreativeAtomException {
+        C chain = chainsManager.buildChain();
+        for (int i = 0; i < chainSize; i++) {
+            chainsManager.pushAtom(chain, pushDataSource.buildPush(random));
+        }
+        return chain;
+    }
+
+    private int atomsCount(C chain) {
+        if (chain.getBands() == null) return 0;
+        int count = 0;
+        for (B b : chain.getBands()) count += b.getAtoms().size();
+        return count;
+    }
+
+    private A atomAt(C chain, int position) {
+        for (B b : chain.getBands()) {
+            if (position < b.getAtoms().size()) return b.getAtoms().get(position);
+            position -= b.getAtoms().size();
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    private static Map<EditorOperation, LatencyRecorder> newRecorders() {
+        Map<EditorOperation, LatencyRecorder> recorders = new EnumMap<EditorOperation, LatencyRecorder>(EditorOperation.class);
+        for (EditorOperation op : EditorOperation.values()) {
+            recorders.put(op, new LatencyRecorder());
+        }
+        return recorders;
+    }
+
+    /**
+     * Replays recorded sessions instead of synthetic ones
+     *
+     * @param sessions
+     */
+    public void setSessions(List<EditorSession> sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Sets relative weights of operations in synthetic sessions
+     *
+     * @param mix
+     */
+    public void setMix(Map<EditorOperation, Integer> mix) {
+        this.mix = mix;
+    }
+
+    public void setSessionsPerThread(int sessionsPerThread) {
+        this.sessionsPerThread = sessionsPerThread;
+    }
+
+    public void setSessionLength(int sessionLength) {
+        this.sessionLength = sessionLength;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Makes all the threads edit a single chain instead of a chain per thread
+     *
+     * @param sharedChain
+     */
+    public void setSharedChain(boolean sharedChain) {
+        this.sharedChain = sharedChain;
+    }
+}
@@ -0,0 +1,11 @@
+package infra.chains.load;
+
+/**
+ * Kinds of operations an editor session performs against a chain
+ *
+ * @author alari
+ * @since 10/19/26 2:05 PM
+ */
+public enum EditorOperation {
+    PUSH, MOVE, STYLE, REMOVE, RENDER
+}
@@ -0,0 +1,96 @@
+package infra.chains.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Recorded or synthetic sequence of editor steps
+ *
+ * @author alari
+ * @since 10/19/26 2:10 PM
+ */
+public class EditorSession {
+    private final List<EditorStep> steps;
+
+    public EditorSession(List<EditorStep> steps) {
+        this.steps = Collections.unmodifiableList(new ArrayList<EditorStep>(steps));
+    }
+
+    /**
+     * Reads a recorded session, one step per line. Empty lines and lines starting with # are skipped
+     *
+     * @param reader
+     * @return session
+     * @throws IOException
+     */
+    public static EditorSession read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<EditorStep> steps = new ArrayList<EditorStep>();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            steps.add(EditorStep.parse(line));
+        }
+        return new EditorSession(steps);
+    }
+
+    /**
+     * Generates a synthetic session with the given operations mix
+     *
+     * @param random
+     * @param length    number of steps
+     * @param chainSize expected chain size, to spread positions over
+     * @param mix       relative weights of operations
+     * @return session
+     */
+    public static EditorSession synthetic(Random random, int length, int chainSize, Map<EditorOperation, Integer> mix) {
+        int total = 0;
+        for (Integer w : mix.values()) total += w;
+        if (total <= 0) {
+            throw new IllegalArgumentException("Operations mix is empty");
+        }
+        int bound = Math.max(chainSize, 1);
+
+        List<EditorStep> steps = new ArrayList<EditorStep>(length);
+        for (int i = 0; i < length; i++) {
+            int r = random.nextInt(total);
+            EditorOperation operation = null;
+            for (Map.Entry<EditorOperation, Integer> e : mix.entrySet()) {
+                r -= e.getValue();
+                if (r < 0) {
+                    operation = e.getKey();
+                    break;
+                }
+            }
+            steps.add(new EditorStep(operation, random.nextInt(bound), random.nextInt(bound)));
+        }
+        return new EditorSession(steps);
+    }
+
+    /**
+     * Typical editor mix: mostly pushes and moves, some styling and removals, rare renders
+     *
+     * @return operations weights
+     */
+    public static Map<EditorOperation, Integer> defaultMix() {
+        Map<EditorOperation, Integer> mix = new EnumMap<EditorOperation, Integer>(EditorOperation.class);
+        mix.put(EditorOperation.PUSH, 30);
+        mix.put(EditorOperation.MOVE, 35);
+        mix.put(EditorOperation.STYLE, 15);
+        mix.put(EditorOperation.REMOVE, 15);
+        mix.put(EditorOperation.RENDER, 5);
+        return mix;
+    }
+
+    public List<EditorStep> getSteps() {
+        return steps;
+    }
+}
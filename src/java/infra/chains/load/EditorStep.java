@@ -0,0 +1,50 @@
+package infra.chains.load;
+
+/**
+ * Single step of an editor session. Arguments are positions in a chain (or band indexes for styling),
+ * taken modulo the actual chain size on replay, so recorded sessions may be replayed against any chain
+ *
+ * @author alari
+ * @since 10/19/26 2:05 PM
+ */
+public class EditorStep {
+    private final EditorOperation operation;
+    private final int from;
+    private final int to;
+
+    public EditorStep(EditorOperation operation, int from, int to) {
+        this.operation = operation;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Parses a recorded step, e.g. "MOVE 12 3", "STYLE 2", "RENDER"
+     *
+     * @param line
+     * @return parsed step
+     */
+    public static EditorStep parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        EditorOperation operation = EditorOperation.valueOf(parts[0].toUpperCase());
+        int from = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        int to = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+        return new EditorStep(operation, from, to);
+    }
+
+    public String toString() {
+        return operation + " " + from + " " + to;
+    }
+
+    public EditorOperation getOperation() {
+        return operation;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+}
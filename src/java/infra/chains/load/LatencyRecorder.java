@@ -0,0 +1,55 @@
+package infra.chains.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples of a single operation. Not thread-safe: every worker keeps its own recorder,
+ * recorders are merged when the run is over
+ *
+ * @author alari
+ * @since 10/19/26 2:20 PM
+ */
+public class LatencyRecorder {
+    private long[] samples = new long[64];
+    private int count = 0;
+
+    /**
+     * @param nanos operation latency
+     */
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Appends all the samples of another recorder
+     *
+     * @param other
+     */
+    public void merge(LatencyRecorder other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(count + other.count, samples.length * 2));
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns latency percentile, sorting samples in place
+     *
+     * @param percentile from 0 to 100
+     * @return latency in nanos, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (count == 0) return 0;
+        Arrays.sort(samples, 0, count);
+        int rank = (int) Math.ceil(percentile / 100d * count) - 1;
+        return samples[Math.min(Math.max(rank, 0), count - 1)];
+    }
+}
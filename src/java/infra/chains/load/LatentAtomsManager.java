@@ -0,0 +1,69 @@
+package infra.chains.load;
+
+import infra.ca.Atom;
+import infra.ca.AtomPush;
+import infra.ca.AtomsManager;
+import infra.ca.ex.CreativeAtomException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local AtomsManager stub: delegates to a real manager and adds a configurable latency to every call,
+ * emulating remote storage or media services behind atoms
+ *
+ * @author alari
+ * @since 10/19/26 2:15 PM
+ */
+public class LatentAtomsManager<A extends Atom, AP extends AtomPush> implements AtomsManager<A, AP> {
+    private final AtomsManager<A, AP> atomsManager;
+    private final long latencyNanos;
+    private final long jitterNanos;
+
+    /**
+     * @param atomsManager delegate
+     * @param latency      fixed latency of every call
+     * @param jitter       max random latency added on top
+     * @param unit         time unit of latency and jitter
+     */
+    public LatentAtomsManager(AtomsManager<A, AP> atomsManager, long latency, long jitter, TimeUnit unit) {
+        this.atomsManager = atomsManager;
+        this.latencyNanos = unit.toNanos(latency);
+        this.jitterNanos = unit.toNanos(jitter);
+    }
+
+    @Override
+    public A build(AP data) throws CreativeAtomException {
+        pause();
+        return atomsManager.build(data);
+    }
+
+    @Override
+    public void delete(A atom) throws CreativeAtomException {
+        pause();
+        atomsManager.delete(atom);
+    }
+
+    @Override
+    public void forUpdate(A atom) throws CreativeAtomException {
+        pause();
+        atomsManager.forUpdate(atom);
+    }
+
+    @Override
+    public void forRender(A atom) throws CreativeAtomException {
+        pause();
+        atomsManager.forRender(atom);
+    }
+
+    private void pause() {
+        long nanos = latencyNanos;
+        if (jitterNanos > 0) {
+            nanos += (long) (ThreadLocalRandom.current().nextDouble() * jitterNanos);
+        }
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+}
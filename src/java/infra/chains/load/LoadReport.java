@@ -0,0 +1,79 @@
+package infra.chains.load;
+
+import java.util.Map;
+
+/**
+ * Result of a single load run: latency percentiles and throughput per operation
+ *
+ * @author alari
+ * @since 10/19/26 2:25 PM
+ */
+public class LoadReport {
+    private final int threads;
+    private final int chainSize;
+    private final boolean sharedChain;
+    private final long elapsedNanos;
+    private final Map<EditorOperation, LatencyRecorder> latencies;
+
+    LoadReport(int threads, int chainSize, boolean sharedChain, long elapsedNanos, Map<EditorOperation, LatencyRecorder> latencies) {
+        this.threads = threads;
+        this.chainSize = chainSize;
+        this.sharedChain = sharedChain;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getChainSize() {
+        return chainSize;
+    }
+
+    /**
+     * @return true if all the threads edited a single chain
+     */
+    public boolean isSharedChain() {
+        return sharedChain;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getCount(EditorOperation operation) {
+        LatencyRecorder r = latencies.get(operation);
+        return r == null ? 0 : r.getCount();
+    }
+
+    /**
+     * @param operation
+     * @param percentile from 0 to 100
+     * @return latency in nanos
+     */
+    public long getLatency(EditorOperation operation, double percentile) {
+        LatencyRecorder r = latencies.get(operation);
+        return r == null ? 0 : r.percentile(percentile);
+    }
+
+    /**
+     * @param operation
+     * @return operations per second over the whole run
+     */
+    public double getThroughput(EditorOperation operation) {
+        return elapsedNanos == 0 ? 0 : getCount(operation) * 1e9d / elapsedNanos;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("threads=%d chainSize=%d sharedChain=%s elapsed=%.1fms%n", threads, chainSize, sharedChain, elapsedNanos / 1e6d));
+        sb.append(String.format("%-8s %10s %12s %12s %12s %12s%n", "op", "count", "p50,us", "p99,us", "p999,us", "ops/s"));
+        for (EditorOperation op : EditorOperation.values()) {
+            sb.append(String.format("%-8s %10d %12.1f %12.1f %12.1f %12.1f%n", op, getCount(op),
+                    getLatency(op, 50) / 1e3d, getLatency(op, 99) / 1e3d, getLatency(op, 99.9) / 1e3d,
+                    getThroughput(op)));
+        }
+        return sb.toString();
+    }
+}
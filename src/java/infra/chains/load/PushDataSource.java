@@ -0,0 +1,15 @@
+package infra.chains.load;
+
+import infra.ca.AtomPush;
+
+import java.util.Random;
+
+/**
+ * Provides user data for atoms pushed during a load run
+ *
+ * @author alari
+ * @since 10/19/26 2:30 PM
+ */
+public interface PushDataSource<AP extends AtomPush> {
+    public AP buildPush(Random random);
+}
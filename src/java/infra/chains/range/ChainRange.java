@@ -0,0 +1,251 @@
+package infra.chains.range;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ordered run of atoms or bands of a chain with a known size, which may be split into parts to be processed
+ * concurrently. Atoms are split on band boundaries, a band is split only if no boundary is close
+ * to the middle of a range.
+ * A range is bound to the bands a chain had when the range was made: a chain must not be changed
+ * while its range is processed
+ *
+ * @author alari
+ * @since 10/19/26 11:50 PM
+ */
+public abstract class ChainRange<T> implements Iterable<T> {
+    final List<? extends Band> bands;
+    int from;
+    int to;
+
+    ChainRange(List<? extends Band> bands, int from, int to) {
+        this.bands = bands;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param chain
+     * @return range of all the chain atoms
+     */
+    public static <A extends Atom> ChainRange<A> atoms(Chain<? extends Band<A>> chain) {
+        List<? extends Band<A>> bands = snapshot(chain);
+        int[] offsets = new int[bands.size() + 1];
+        for (int i = 0; i < bands.size(); i++) {
+            List<A> atoms = bands.get(i).getAtoms();
+            offsets[i + 1] = offsets[i] + (atoms == null ? 0 : atoms.size());
+        }
+        return new AtomsRange<A>(bands, offsets, 0, offsets[bands.size()]);
+    }
+
+    /**
+     * @param chain
+     * @return range of all the chain bands
+     */
+    public static <B extends Band> ChainRange<B> bands(Chain<B> chain) {
+        List<B> bands = snapshot(chain);
+        return new BandsRange<B>(bands, 0, bands.size());
+    }
+
+    /**
+     * @return number of items in the range
+     */
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * Splits off the first part of the range, this range keeps the rest
+     *
+     * @return first part, or null if the range is too small to be split
+     */
+    public ChainRange<T> trySplit() {
+        int at = splitPosition();
+        if (at <= from || at >= to) return null;
+        ChainRange<T> prefix = copy(from, at);
+        from = at;
+        return prefix;
+    }
+
+    /**
+     * Splits the range into parts of close sizes, e.g. to be submitted to an executor
+     *
+     * @param parts maximal number of parts
+     * @return parts in chain order
+     */
+    public List<ChainRange<T>> split(int parts) {
+        List<ChainRange<T>> split = new ArrayList<ChainRange<T>>();
+        split.add(copy(from, to));
+        while (split.size() < parts) {
+            ChainRange<T> largest = Collections.max(split, SIZE_ORDER);
+            ChainRange<T> prefix = largest.trySplit();
+            if (prefix == null) break;
+            split.add(prefix);
+        }
+        Collections.sort(split, POSITION_ORDER);
+        return split;
+    }
+
+    /**
+     * Visits all items of the range with a pool, splitting it into about four parts per pool thread
+     *
+     * @param pool
+     * @param visitor
+     */
+    public void forEach(ForkJoinPool pool, RangeVisitor<? super T> visitor) {
+        int threshold = Math.max(1, size() / (pool.getParallelism() * 4));
+        pool.invoke(new VisitTask<T>(copy(from, to), visitor, threshold));
+    }
+
+    abstract int splitPosition();
+
+    abstract ChainRange<T> copy(int from, int to);
+
+    @SuppressWarnings("unchecked")
+    private static <B extends Band> List<B> snapshot(Chain<B> chain) {
+        List<B> bands = chain.getBands();
+        return bands == null ? Collections.<B>emptyList() : new ArrayList<B>(bands);
+    }
+
+    private static final Comparator<ChainRange> SIZE_ORDER = new Comparator<ChainRange>() {
+        public int compare(ChainRange a, ChainRange b) {
+            return a.size() - b.size();
+        }
+    };
+
+    private static final Comparator<ChainRange> POSITION_ORDER = new Comparator<ChainRange>() {
+        public int compare(ChainRange a, ChainRange b) {
+            return a.from - b.from;
+        }
+    };
+
+    private static class AtomsRange<A extends Atom> extends ChainRange<A> {
+        // Positions of the first atoms of bands in a chain, shared by all parts of a range
+        private final int[] offsets;
+
+        AtomsRange(List<? extends Band> bands, int[] offsets, int from, int to) {
+            super(bands, from, to);
+            this.offsets = offsets;
+        }
+
+        int splitPosition() {
+            int size = to - from;
+            if (size < 2) return -1;
+            int middle = from + size / 2;
+            int band = bandAt(middle);
+            int boundary = middle - offsets[band] <= offsets[band + 1] - middle ? offsets[band] : offsets[band + 1];
+            if (boundary > from && boundary < to && Math.abs(boundary - middle) <= size / 4) {
+                return boundary;
+            }
+            return middle;
+        }
+
+        ChainRange<A> copy(int from, int to) {
+            return new AtomsRange<A>(bands, offsets, from, to);
+        }
+
+        public Iterator<A> iterator() {
+            return new Iterator<A>() {
+                private int position = from;
+                private int band = from < to ? bandAt(from) : 0;
+                // Atoms of the current band, null if they are read by index
+                private Iterator<?> atoms;
+
+                public boolean hasNext() {
+                    return position < to;
+                }
+
+                @SuppressWarnings("unchecked")
+                public A next() {
+                    if (position >= to) throw new NoSuchElementException();
+                    if (position >= offsets[band + 1]) {
+                        while (position >= offsets[band + 1]) band++;
+                        atoms = null;
+                    }
+                    List<?> bandAtoms = bands.get(band).getAtoms();
+                    if (bandAtoms instanceof RandomAccess) {
+                        return (A) bandAtoms.get(position++ - offsets[band]);
+                    }
+                    // Linked atoms are walked from the range start, not looked up from the band head each time
+                    if (atoms == null) {
+                        atoms = bandAtoms.listIterator(position - offsets[band]);
+                    }
+                    position++;
+                    return (A) atoms.next();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        /**
+         * @param position atom position in a chain
+         * @return index of the last band starting at or before the position
+         */
+        private int bandAt(int position) {
+            int low = 0, high = offsets.length - 2;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (offsets[mid] <= position) low = mid;
+                else high = mid - 1;
+            }
+            return low;
+        }
+    }
+
+    private static class BandsRange<B extends Band> extends ChainRange<B> {
+        BandsRange(List<? extends Band> bands, int from, int to) {
+            super(bands, from, to);
+        }
+
+        int splitPosition() {
+            return to - from < 2 ? -1 : from + (to - from) / 2;
+        }
+
+        ChainRange<B> copy(int from, int to) {
+            return new BandsRange<B>(bands, from, to);
+        }
+
+        @SuppressWarnings("unchecked")
+        public Iterator<B> iterator() {
+            return ((List<B>) bands).subList(from, to).iterator();
+        }
+    }
+
+    private static class VisitTask<T> extends RecursiveAction {
+        private final ChainRange<T> range;
+        private final RangeVisitor<? super T> visitor;
+        private final int threshold;
+
+        VisitTask(ChainRange<T> range, RangeVisitor<? super T> visitor, int threshold) {
+            this.range = range;
+            this.visitor = visitor;
+            this.threshold = threshold;
+        }
+
+        protected void compute() {
+            List<VisitTask<T>> forked = new ArrayList<VisitTask<T>>();
+            ChainRange<T> prefix;
+            while (range.size() > threshold && (prefix = range.trySplit()) != null) {
+                VisitTask<T> task = new VisitTask<T>(prefix, visitor, threshold);
+                task.fork();
+                forked.add(task);
+            }
+            for (T item : range) visitor.visit(item);
+            for (VisitTask<T> task : forked) task.join();
+        }
+    }
+}
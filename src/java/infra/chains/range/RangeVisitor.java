@@ -0,0 +1,11 @@
+package infra.chains.range;
+
+/**
+ * Processes items of a chain range, may be called from several threads at once
+ *
+ * @author alari
+ * @since 10/19/26 11:50 PM
+ */
+public interface RangeVisitor<T> {
+    public void visit(T item);
+}
@@ -0,0 +1,47 @@
+package infra.chains.search;
+
+/**
+ * Atom found by a search: its id, band and position in the band
+ *
+ * @author alari
+ * @since 10/19/26 4:30 PM
+ */
+public class AtomMatch {
+    private final String atomId;
+    private final String bandId;
+    private final int bandIndex;
+    private final int position;
+
+    public AtomMatch(String atomId, String bandId, int bandIndex, int position) {
+        this.atomId = atomId;
+        this.bandId = bandId;
+        this.bandIndex = bandIndex;
+        this.position = position;
+    }
+
+    public String toString() {
+        return "AtomMatch:" + atomId + "@" + bandId + ":" + position;
+    }
+
+    public String getAtomId() {
+        return atomId;
+    }
+
+    public String getBandId() {
+        return bandId;
+    }
+
+    /**
+     * @return index of the band in a chain
+     */
+    public int getBandIndex() {
+        return bandIndex;
+    }
+
+    /**
+     * @return position of the atom in its band
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,291 @@
+package infra.chains.search;
+
+import infra.ca.Atom;
+import infra.chains.Band;
+import infra.chains.Chain;
+import infra.chains.event.ChainEvent;
+import infra.chains.event.ChainListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index over atoms text of a single chain, kept in sync by chain events it listens to.
+ * Every indexed atom knows its band and position in the band. Events only mark the bands they touch as stale,
+ * in O(1); a search rescans the stale bands once, so matches are located in O(1) each, and positions
+ * of bands in a chain are recounted only if bands were added, removed or moved since the last search.
+ * The index keeps bands of a chain, so it must be unregistered when the chain is closed
+ *
+ * @author alari
+ * @since 10/19/26 4:35 PM
+ */
+public class ChainTextIndex<B extends Band<A>, A extends Atom> implements ChainListener {
+    private final Map<String, Set<String>> postings = new HashMap<String, Set<String>>();
+    private final Map<String, Entry<B, A>> entries = new HashMap<String, Entry<B, A>>();
+    private final Map<A, Entry<B, A>> atomEntries = new IdentityHashMap<A, Entry<B, A>>();
+
+    // Bands whose atom positions have changed since the last search
+    private final Set<B> staleBands = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+    private Map<B, Integer> bandIndexes = null;
+
+    /**
+     * Builds an index over all atoms of a chain
+     *
+     * @param chain
+     */
+    public synchronized void rebuild(Chain<B> chain) {
+        postings.clear();
+        entries.clear();
+        atomEntries.clear();
+        staleBands.clear();
+        bandIndexes = null;
+        if (chain.getBands() == null) return;
+        for (B b : chain.getBands()) {
+            int position = 0;
+            for (A a : b.getAtoms()) add(a, b, position++);
+        }
+    }
+
+    /**
+     * Follows changes of a chain
+     *
+     * @param events
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void onChainEvents(List<ChainEvent> events) {
+        for (ChainEvent e : events) {
+            switch (e.getType()) {
+                case ATOM_ADDED:
+                    add((A) e.getAtom(), (B) e.getToBand(), -1);
+                    staleBands.add((B) e.getToBand());
+                    break;
+                case ATOM_REMOVED:
+                    remove(e.getAtom().getId());
+                    staleBands.add((B) e.getFromBand());
+                    break;
+                case ATOM_MOVED:
+                    Entry<B, A> entry = atomEntries.get(e.getAtom());
+                    if (entry != null) entry.band = (B) e.getToBand();
+                    staleBands.add((B) e.getFromBand());
+                    staleBands.add((B) e.getToBand());
+                    break;
+                case BAND_REMOVED:
+                    // A band with atoms leaves for another chain
+                    for (A a : ((B) e.getFromBand()).getAtoms()) {
+                        if (atomEntries.containsKey(a)) remove(a.getId());
+                    }
+                    bandIndexes = null;
+                    break;
+                case BAND_SPLIT:
+                case BAND_MERGED:
+                    staleBands.add((B) e.getFromBand());
+                    staleBands.add((B) e.getToBand());
+                    bandIndexes = null;
+                    break;
+                case BAND_CREATED:
+                case BAND_MOVED:
+                    bandIndexes = null;
+                    break;
+                default:
+            }
+        }
+    }
+
+    /**
+     * Reindexes an atom after its text was changed
+     *
+     * @param atom
+     */
+    public synchronized void update(A atom) {
+        Entry<B, A> entry = entries.get(atom.getId().toLowerCase());
+        if (entry == null) return;
+        remove(atom.getId());
+        add(atom, entry.band, entry.position);
+    }
+
+    /**
+     * @return number of indexed atoms
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds atoms containing all the words of a query, in chain order
+     *
+     * @param chain chain the index belongs to
+     * @param query
+     * @return matches
+     */
+    public synchronized List<AtomMatch> search(Chain<B> chain, String query) {
+        Set<String> words = tokenize(query);
+        if (words.isEmpty() || chain.getBands() == null) return Collections.emptyList();
+
+        // Intersect postings, starting with the shortest
+        List<Set<String>> lists = new ArrayList<Set<String>>(words.size());
+        for (String w : words) {
+            Set<String> ids = postings.get(w);
+            if (ids == null) return Collections.emptyList();
+            lists.add(ids);
+        }
+        Collections.sort(lists, new Comparator<Set<String>>() {
+            @Override
+            public int compare(Set<String> o1, Set<String> o2) {
+                return o1.size() - o2.size();
+            }
+        });
+        Set<String> found = new HashSet<String>(lists.get(0));
+        for (int i = 1; i < lists.size() && !found.isEmpty(); i++) {
+            found.retainAll(lists.get(i));
+        }
+        if (found.isEmpty()) return Collections.emptyList();
+
+        refresh(chain);
+        List<Entry<B, A>> located = new ArrayList<Entry<B, A>>(found.size());
+        for (String id : found) located.add(entries.get(id));
+        if (!locate(located)) {
+            // The chain was changed bypassing the events, look for all the atoms once
+            for (Entry<B, A> entry : located) entry.band = null;
+            bandIndexes = null;
+            staleBands.addAll(chain.getBands());
+            refresh(chain);
+            locate(located);
+        }
+
+        List<AtomMatch> matches = new ArrayList<AtomMatch>(located.size());
+        for (Entry<B, A> entry : located) {
+            if (entry.band == null) {
+                // Atom is not in a chain anymore
+                remove(entry.atom.getId());
+            } else {
+                matches.add(new AtomMatch(entry.atom.getId(), entry.band.getId(), bandIndexes.get(entry.band), entry.position));
+            }
+        }
+        Collections.sort(matches, new Comparator<AtomMatch>() {
+            @Override
+            public int compare(AtomMatch o1, AtomMatch o2) {
+                return o1.getBandIndex() != o2.getBandIndex() ? o1.getBandIndex() - o2.getBandIndex() : o1.getPosition() - o2.getPosition();
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Recounts band positions if bands were moved, and atom positions in stale bands
+     *
+     * @param chain
+     */
+    private void refresh(Chain<B> chain) {
+        if (bandIndexes == null) {
+            bandIndexes = new IdentityHashMap<B, Integer>();
+            int i = 0;
+            for (B b : chain.getBands()) bandIndexes.put(b, i++);
+        }
+        for (B b : staleBands) {
+            if (!bandIndexes.containsKey(b)) continue;
+            int position = 0;
+            for (A a : b.getAtoms()) {
+                Entry<B, A> entry = atomEntries.get(a);
+                if (entry != null) {
+                    entry.band = b;
+                    entry.position = position;
+                }
+                ++position;
+            }
+        }
+        staleBands.clear();
+    }
+
+    /**
+     * Checks that entries point to their atoms, entries of atoms which left a chain lose their bands
+     *
+     * @param located
+     * @return false if an entry points to a wrong place
+     */
+    private boolean locate(List<Entry<B, A>> located) {
+        for (Entry<B, A> entry : located) {
+            if (entry.band == null) continue;
+            if (!bandIndexes.containsKey(entry.band)) {
+                entry.band = null;
+                continue;
+            }
+            List<A> atoms = entry.band.getAtoms();
+            if (entry.position < 0 || entry.position >= atoms.size() || atoms.get(entry.position) != entry.atom) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(A atom, B band, int position) {
+        String id = atom.getId().toLowerCase();
+        remove(id);
+        Set<String> tokens = tokenize(atom.getText());
+        Entry<B, A> entry = new Entry<B, A>(atom, band, position, tokens);
+        entries.put(id, entry);
+        atomEntries.put(atom, entry);
+        for (String t : tokens) {
+            Set<String> ids = postings.get(t);
+            if (ids == null) {
+                ids = new HashSet<String>();
+                postings.put(t, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    private void remove(String atomId) {
+        Entry<B, A> entry = entries.remove(atomId.toLowerCase());
+        if (entry == null) return;
+        atomEntries.remove(entry.atom);
+        for (String t : entry.tokens) {
+            Set<String> ids = postings.get(t);
+            ids.remove(atomId.toLowerCase());
+            if (ids.isEmpty()) postings.remove(t);
+        }
+    }
+
+    /**
+     * Splits a text into lower cased words
+     *
+     * @param text
+     * @return words
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<String>();
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static class Entry<B, A> {
+        private final A atom;
+        private B band;
+        private int position;
+        private final Set<String> tokens;
+
+        private Entry(A atom, B band, int position, Set<String> tokens) {
+            this.atom = atom;
+            this.band = band;
+            this.position = position;
+            this.tokens = tokens;
+        }
+    }
+}
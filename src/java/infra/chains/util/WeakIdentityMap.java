@@ -0,0 +1,91 @@
+package infra.chains.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Map with weakly referenced keys compared by identity. Unlike WeakHashMap, two chains equal by their
+ * contents never share an entry. Entries of collected keys are dropped on the next change of the map.
+ * All the methods are synchronized; values must not reference their keys, or keys are never collected
+ *
+ * @author alari
+ * @since 10/19/26 11:55 PM
+ */
+public class WeakIdentityMap<K, V> {
+    private final Map<Key<K>, V> map = new HashMap<Key<K>, V>();
+    private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+    public synchronized V get(K key) {
+        return map.get(new Key<K>(key, null));
+    }
+
+    public synchronized boolean containsKey(K key) {
+        return map.containsKey(new Key<K>(key, null));
+    }
+
+    public synchronized V put(K key, V value) {
+        expunge();
+        return map.put(new Key<K>(key, queue), value);
+    }
+
+    public synchronized V remove(K key) {
+        expunge();
+        return map.remove(new Key<K>(key, null));
+    }
+
+    public synchronized int size() {
+        expunge();
+        return map.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return keys not yet collected
+     */
+    public synchronized List<K> keys() {
+        expunge();
+        List<K> keys = new ArrayList<K>(map.size());
+        for (Key<K> k : map.keySet()) {
+            K key = k.get();
+            if (key != null) keys.add(key);
+        }
+        return keys;
+    }
+
+    private void expunge() {
+        Reference<? extends K> collected;
+        while ((collected = queue.poll()) != null) {
+            map.remove(collected);
+        }
+    }
+
+    private static class Key<K> extends WeakReference<K> {
+        private final int hash;
+
+        Key(K key, ReferenceQueue<K> queue) {
+            super(key, queue);
+            hash = System.identityHashCode(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+            Object key = get();
+            return key != null && key == ((Key) o).get();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package infra.chains
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.AtomPush
+import infra.ca.impl.AtomPOJOPush
+
+class ChainDirtyTrackingSpec extends IntegrationSpec {
+
+    ChainsManager chainsManager
+
+    ChainDirtyTracking chainDirtyTracking
+
+    void "tracks bands changed since a chain was marked clean"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+
+        expect: "chain never marked clean is dirty as a whole"
+        chainDirtyTracking.getDirtyBands(chain) == chain.bands
+
+        when:
+        chainDirtyTracking.clearDirty(chain)
+
+        then:
+        chainDirtyTracking.getDirtyBands(chain).empty
+
+        when:
+        chainsManager.moveInBand(chain, atoms[1][2], 0)
+        chainsManager.setBandStyle(chain, chain.bands[2].id, [align: "left"])
+
+        then:
+        chainDirtyTracking.getDirtyBands(chain)*.id == [chain.bands[1].id, chain.bands[2].id]
+
+        when:
+        chainDirtyTracking.clearDirty(chain)
+        chainsManager.removeAtom(chain, atoms[0][0])
+
+        then: "removed bands are not listed"
+        chain.bands.size() == 2
+        chainDirtyTracking.getDirtyBands(chain).empty
+
+        cleanup:
+        chainDirtyTracking.untrack(chain)
+    }
+
+    void "chains are tracked one by one"() {
+        given:
+        Chain chain = threeBandChain
+        Chain other = threeBandChain
+        chainDirtyTracking.clearDirty(chain)
+
+        when: "another chain is changed"
+        chainsManager.moveBand(other, other.bands[2].id, 0)
+
+        then:
+        chainDirtyTracking.getDirtyBands(chain).empty
+        chainDirtyTracking.getDirtyBands(other) == other.bands
+
+        when:
+        chainDirtyTracking.untrack(chain)
+
+        then: "untracked chain is dirty as a whole"
+        chainDirtyTracking.getDirtyBands(chain) == chain.bands
+    }
+
+    private AtomPush getData() {
+        new AtomPOJOPush(
+                title: "test text",
+                text: "a"
+        )
+    }
+
+    private AtomPush getRuData() {
+        new AtomPOJOPush(
+                externalUrl: "http://russia.ru/video/diskurs_12854/"
+        )
+    }
+
+    private Chain getThreeBandChain() {
+        Chain chain = chainsManager.buildChain()
+        chainsManager.pushAtom(chain, ruData)
+        chainsManager.pushAtom(chain, data)
+        chainsManager.pushAtom(chain, data)
+        chainsManager.pushAtom(chain, data)
+        chainsManager.pushAtom(chain, ruData)
+        chain
+    }
+}
@@ -0,0 +1,161 @@
+package infra.chains
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.AtomPush
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.event.ChainEvent
+import infra.chains.event.ChainListener
+
+class ChainHistorySpec extends IntegrationSpec {
+
+    ChainsManager chainsManager
+    ChainHistory chainHistory
+
+    void "changes are undone and redone"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+        List<String> bands = chain.bands*.id
+
+        when: "moving to split"
+        chainsManager.moveAtom(chain, atoms[0][0], 10)
+        chainsManager.moveAtom(chain, atoms[0][0], 1)
+        chainsManager.setBandStyle(chain, bands[1], [align: "left"])
+
+        then:
+        chain.bands*.atoms.id == [[atoms[1][0]], [atoms[0][0]], [atoms[1][1], atoms[1][2]], [atoms[2][0]]]
+        chain.bands[0].styles == [align: "left"]
+
+        when:
+        chainHistory.undo(chain)
+        chainHistory.undo(chain)
+        chainHistory.undo(chain)
+
+        then:
+        chain.bands*.id == bands
+        chain.bands*.atoms.id == atoms
+        chain.bands[1].styles == null
+        !chainHistory.canUndo(chain)
+
+        when:
+        chainHistory.redo(chain)
+        chainHistory.redo(chain)
+        chainHistory.redo(chain)
+
+        then:
+        chain.bands*.atoms.id == [[atoms[1][0]], [atoms[0][0]], [atoms[1][1], atoms[1][2]], [atoms[2][0]]]
+        chain.bands[0].styles == [align: "left"]
+        !chainHistory.canRedo(chain)
+    }
+
+    void "pushes and removals are undone, new change drops redo"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+
+        when:
+        chainsManager.removeAtom(chain, atoms[0][0])
+        chainHistory.undo(chain)
+
+        then:
+        chain.bands*.atoms.id == atoms
+        chainHistory.canRedo(chain)
+
+        when:
+        chainsManager.pushAtom(chain, data)
+
+        then:
+        chain.bands*.atoms*.size() == [1, 3, 1, 1]
+        !chainHistory.canRedo(chain)
+
+        when:
+        chainHistory.undo(chain)
+
+        then:
+        chain.bands*.atoms.id == atoms
+    }
+
+    void "undo is delivered to listeners and indexes"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+        String type = chain.bands[0].type
+        List<ChainEvent> events = []
+        ChainListener listener = { events.addAll(it) } as ChainListener
+
+        when:
+        chainsManager.getBandsByType(chain, type)
+        chainsManager.moveAtom(chain, atoms[0][0], 10)
+        chainsManager.addChainListener(chain, listener, true)
+        chainHistory.undo(chain)
+
+        then: "inverse events in reverse order"
+        events*.type == [ChainEvent.Type.BAND_CREATED, ChainEvent.Type.ATOM_MOVED]
+        events[1].toBand.is(chain.bands[0])
+        chainsManager.getAtomsByType(chain, type).collect { it.id } == [atoms[0][0], atoms[2][0]]
+
+        cleanup:
+        chainsManager.removeChainListener(chain, listener)
+    }
+
+    void "moving bands to another chain drops history of the source"() {
+        given:
+        Chain chain = threeBandChain
+        Chain target = threeBandChain
+        List<List<String>> targetAtoms
+
+        when:
+        chainsManager.moveInBand(chain, chain.bands[1].atoms[0].id, 2)
+        chainsManager.moveInBand(target, target.bands[1].atoms[0].id, 2)
+
+        then:
+        chainHistory.canUndo(chain)
+        chainHistory.canUndo(target)
+
+        when:
+        targetAtoms = target.bands*.atoms.id
+        chainsManager.splice(chain, 0, 2, target, 0)
+
+        then:
+        !chainHistory.canUndo(chain)
+        chainHistory.canUndo(target)
+        target.bands*.atoms*.size() == [1, 1, 1, 3, 1]
+
+        when: "pasted atoms are taken out of the target"
+        chainHistory.undo(target)
+
+        then:
+        target.bands*.atoms.id == targetAtoms
+
+        when:
+        chainHistory.untrack(chain)
+        chainsManager.removeAtom(chain, chain.bands[0].atoms[0].id)
+
+        then:
+        !chainHistory.canUndo(chain)
+    }
+
+    private AtomPush getData() {
+        new AtomPOJOPush(
+                title: "test text",
+                text: "a"
+        )
+    }
+
+    private AtomPush getRuData() {
+        new AtomPOJOPush(
+                externalUrl: "http://russia.ru/video/diskurs_12854/"
+        )
+    }
+
+    private Chain getThreeBandChain() {
+        Chain chain = chainsManager.buildChain()
+        chainsManager.pushAtom(chain, ruData)
+        chainsManager.pushAtom(chain, data)
+        chainsManager.pushAtom(chain, data)
+        chainsManager.pushAtom(chain, data)
+        chainsManager.pushAtom(chain, ruData)
+        chainHistory.track(chain)
+        chain
+    }
+}
@@ -0,0 +1,102 @@
+package infra.chains
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.AtomPush
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.search.AtomMatch
+
+class ChainSearchSpec extends IntegrationSpec {
+
+    ChainsManager chainsManager
+
+    ChainSearch chainSearch
+
+    ChainHistory chainHistory
+
+    void "finds atoms by words of their text"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        String a0 = chainsManager.pushAtom(chain, text("Quick brown fox")).id
+        String v1 = chainsManager.pushAtom(chain, ruData).id
+        String a2 = chainsManager.pushAtom(chain, text("lazy brown dog")).id
+
+        when:
+        List<AtomMatch> matches = chainSearch.search(chain, "BROWN")
+
+        then:
+        matches*.atomId == [a0, a2]
+        matches*.bandId == [chain.bands[0].id, chain.bands[2].id]
+        matches*.position == [0, 0]
+        chainSearch.search(chain, "brown dog")*.atomId == [a2]
+        chainSearch.search(chain, "cat").empty
+
+        when: "index follows pushes, moves and removals"
+        String a3 = chainsManager.pushAtom(chain, text("brown cat")).id
+        chainsManager.moveToBand(chain, a2, chain.bands[0].id, 0)
+        chainsManager.removeAtom(chain, a0)
+        matches = chainSearch.search(chain, "brown")
+
+        then:
+        matches*.atomId == [a2, a3]
+        matches*.position == [0, 0]
+        chain.bands[0].atoms*.id == [a2]
+        chain.bands[1].atoms*.id == [v1]
+
+        cleanup:
+        chainSearch.untrack(chain)
+    }
+
+    void "positions follow splits, band moves and undo"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        chainHistory.track(chain)
+        List<String> ids = (0..3).collect { chainsManager.pushAtom(chain, text("word " + it)).id }
+        chainSearch.search(chain, "word")
+
+        when: "a band is split by a video"
+        chainsManager.pushAtom(chain, ruData)
+        String video = chain.bands[1].atoms[0].id
+        chainsManager.moveAtom(chain, video, 2)
+        List<AtomMatch> matches = chainSearch.search(chain, "word")
+
+        then:
+        matches*.atomId == ids
+        matches*.bandIndex == [0, 0, 2, 2]
+        matches*.position == [0, 1, 0, 1]
+
+        when:
+        chainsManager.moveBand(chain, chain.bands[2].id, 0)
+        matches = chainSearch.search(chain, "word")
+
+        then:
+        matches*.atomId == [ids[2], ids[3], ids[0], ids[1]]
+        matches*.bandIndex == [0, 0, 1, 1]
+
+        when:
+        chainHistory.undo(chain)
+        chainHistory.undo(chain)
+        matches = chainSearch.search(chain, "word")
+
+        then:
+        matches*.atomId == ids
+        matches*.bandIndex == [0, 0, 0, 0]
+        matches*.position == [0, 1, 2, 3]
+
+        cleanup:
+        chainSearch.untrack(chain)
+        chainHistory.untrack(chain)
+    }
+
+    private AtomPush text(String text) {
+        new AtomPOJOPush(
+                title: "test text",
+                text: text
+        )
+    }
+
+    private AtomPush getRuData() {
+        new AtomPOJOPush(
+                externalUrl: "http://russia.ru/video/diskurs_12854/"
+        )
+    }
+}
@@ -4,6 +4,8 @@ import grails.plugin.spock.IntegrationSpec
 import infra.ca.Atom
 import infra.ca.AtomPush
 import infra.ca.impl.AtomPOJOPush
+import infra.chains.event.ChainEvent
+import infra.chains.event.ChainListener
 import infra.chains.ex.NotFoundInChainException
 import spock.lang.Stepwise
 
@@ -346,6 +348,344 @@ class ChainsManagerSpec extends IntegrationSpec {
         thrown(NotFoundInChainException)
     }
 
+    void "splitting a band repeatedly leaves every band with a list of its own"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        List<String> ids = (0..5).collect { chainsManager.pushAtom(chain, data).id }
+        String r1 = chainsManager.pushAtom(chain, ruData).id
+        String r2 = chainsManager.pushAtom(chain, ruData).id
+
+        when:
+        chainsManager.moveToBand(chain, r1, chain.bands[0].id, 4)
+
+        then:
+        chain.bands*.atoms.id == [ids[0..3], [r1], ids[4..5], [r2]]
+
+        when:
+        chainsManager.moveToBand(chain, r2, chain.bands[0].id, 2)
+
+        then:
+        chain.bands*.atoms.id == [ids[0..1], [r2], ids[2..3], [r1], ids[4..5]]
+
+        when: "a split band list is changed directly"
+        chain.bands[0].atoms.add(chain.bands[4].atoms[0])
+        chain.bands[2].atoms.clear()
+
+        then: "other bands are not affected"
+        chain.bands*.atoms.id == [ids[0..1] + [ids[4]], [r2], [], [r1], ids[4..5]]
+
+        when: "bands are modified independently"
+        chain.bands[0].atoms.remove(2)
+        chain.bands[2].atoms.addAll(chain.bands[0].atoms)
+        String pushed = chainsManager.pushAtom(chain, data, chain.bands[0].id).id
+
+        then:
+        chain.bands*.atoms.id == [ids[0..1] + [pushed], [r2], ids[0..1], [r1], ids[4..5]]
+    }
+
+    void "chain changes are delivered to listeners"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+        List<ChainEvent> events = []
+        List<List<ChainEvent>> batches = []
+        ChainListener listener = { events.addAll(it) } as ChainListener
+        ChainListener batchListener = { batches.add(it) } as ChainListener
+        chainsManager.addChainListener(listener, false)
+        chainsManager.addChainListener(batchListener, true)
+
+        when: "moving to split"
+        chainsManager.moveAtom(chain, atoms[0][0], 10)
+        chainsManager.moveAtom(chain, atoms[0][0], 1)
+
+        then: "an emptied band is removed after the atom leaves it"
+        events*.type == [ChainEvent.Type.ATOM_MOVED, ChainEvent.Type.BAND_REMOVED,
+                ChainEvent.Type.BAND_SPLIT, ChainEvent.Type.BAND_CREATED, ChainEvent.Type.ATOM_MOVED]
+        events[0].atom.id == atoms[0][0]
+        events[0].toBand.id == chain.bands[3].id
+        events[0].toPosition == 1
+        events[1].fromBand.is(events[0].fromBand)
+        events[2].fromBand.is(chain.bands[0])
+        events[2].fromPosition == 1
+        events[2].toBand.is(chain.bands[2])
+        events[3].toBand.is(chain.bands[1])
+        events[4].fromBand.is(chain.bands[3])
+        events[4].toBand.is(chain.bands[1])
+        batches*.size() == [2, 3]
+
+        when:
+        chainsManager.removeAtom(chain, atoms[0][0])
+
+        then:
+        events[-2..-1]*.type == [ChainEvent.Type.ATOM_REMOVED, ChainEvent.Type.BAND_REMOVED]
+        events[-2].fromPosition == 0
+
+        cleanup:
+        chainsManager.removeChainListener(listener)
+        chainsManager.removeChainListener(batchListener)
+    }
+
+    void "events of a chain replayed in order rebuild it"() {
+        given:
+        Chain chain = threeBandChain
+        Chain other = threeBandChain
+        List<Band> order = new ArrayList<Band>(chain.bands)
+        Map<Band, List<Atom>> content = new IdentityHashMap<Band, List<Atom>>()
+        chain.bands.each { content[it] = new ArrayList<Atom>(it.atoms) }
+        List<ChainEvent> events = []
+        ChainListener listener = { List<ChainEvent> es ->
+            es.each { ChainEvent e ->
+                events << e
+                switch (e.type) {
+                    case ChainEvent.Type.ATOM_ADDED:
+                        content[e.toBand].add(e.toPosition, e.atom)
+                        break
+                    case ChainEvent.Type.ATOM_REMOVED:
+                        assert content[e.fromBand].remove(e.fromPosition).is(e.atom)
+                        break
+                    case ChainEvent.Type.ATOM_MOVED:
+                        assert order.any { it.is(e.fromBand) } && order.any { it.is(e.toBand) }
+                        assert content[e.fromBand].remove(e.fromPosition).is(e.atom)
+                        content[e.toBand].add(e.toPosition, e.atom)
+                        break
+                    case ChainEvent.Type.BAND_CREATED:
+                        content[e.toBand] = []
+                        order.add(e.toPosition, e.toBand)
+                        break
+                    case ChainEvent.Type.BAND_REMOVED:
+                        assert content[e.fromBand].empty
+                        assert order.remove(e.fromPosition).is(e.fromBand)
+                        break
+                    case ChainEvent.Type.BAND_MOVED:
+                        assert order.remove(e.fromPosition).is(e.fromBand)
+                        order.add(e.toPosition, e.fromBand)
+                        break
+                    case ChainEvent.Type.BAND_SPLIT:
+                        List<Atom> tail = content[e.fromBand].subList(e.fromPosition, content[e.fromBand].size())
+                        content[e.toBand] = new ArrayList<Atom>(tail)
+                        tail.clear()
+                        order.add(e.toPosition, e.toBand)
+                        break
+                }
+            }
+        } as ChainListener
+        chainsManager.addChainListener(chain, listener, false)
+
+        when:
+        List<String> ids = chain.bands*.atoms.flatten().id
+        chainsManager.moveAtom(chain, ids[0], 10)
+        chainsManager.moveAtom(chain, ids[0], 1)
+        chainsManager.moveToBand(chain, ids[4], chain.bands[0].id, 0)
+        chainsManager.moveToBand(chain, ids[2], chain.bands[1].id)
+        chainsManager.pushAtom(chain, ruData, chain.bands[0].id)
+        chainsManager.moveInBand(chain, ids[3], 0)
+        chainsManager.removeAtom(chain, ids[0])
+        chainsManager.moveAtom(other, other.bands[0].atoms[0].id, 2)
+
+        then:
+        order*.id == chain.bands*.id
+        order.collect { content[it]*.id } == chain.bands*.atoms*.id
+        events.every { it.chain.is(chain) }
+
+        cleanup:
+        chainsManager.removeChainListener(chain, listener)
+    }
+
+    void "we may list bands and atoms of a type"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+        String type = chain.bands[0].type
+
+        expect:
+        chainsManager.getBandsByType(chain, type.toUpperCase()).collect { it.id } == [chain.bands[0].id, chain.bands[2].id]
+        chainsManager.getAtomsByType(chain, type).collect { it.id } == [atoms[0][0], atoms[2][0]]
+        !chainsManager.getAtomsByType(chain, "unknown").hasNext()
+
+        when: "moving to split"
+        chainsManager.moveAtom(chain, atoms[0][0], 10)
+        chainsManager.moveAtom(chain, atoms[0][0], 1)
+
+        then:
+        chainsManager.getAtomsByType(chain, type).collect { it.id } == [atoms[0][0], atoms[2][0]]
+        chainsManager.getBandsByType(chain, chain.bands[0].type).collect { it.id } == [chain.bands[0].id, chain.bands[2].id]
+        chainsManager.getAtomsByType(chain, chain.bands[0].type).collect { it.id } == atoms[1]
+    }
+
+    void "bands of a type keep chain order when inserted at the same place"() {
+        given:
+        Chain chain = threeBandChain
+        String type = chain.bands[1].type
+        chainsManager.getBandsByType(chain, type)
+
+        when: "more bands are inserted between the same neighbours than labels fit"
+        100.times {
+            chainsManager.pushAtom(chain, data)
+            chainsManager.moveBand(chain, chain.bands.last().id, 1)
+        }
+
+        then:
+        chain.bands.size() == 103
+        chainsManager.getBandsByType(chain, type).collect { it.id } == chain.bands.findAll { it.type.equalsIgnoreCase(type) }*.id
+        chainsManager.getBandsByType(chain, chain.bands[0].type).collect { it.id } == [chain.bands[0].id, chain.bands[102].id]
+    }
+
+    void "we may move a range of atoms and splice it into another chain"() {
+        given:
+        Chain chain = threeBandChain
+        Chain target = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+        List<List<String>> targetAtoms = target.bands*.atoms.id
+
+        when: "moving the first atom to the end merges it with the last band"
+        chainsManager.moveRange(chain, 0, 1, 4)
+
+        then:
+        chain.bands*.atoms.id == [atoms[1], [atoms[2][0], atoms[0][0]]]
+
+        when: "splicing a part of a band into the middle of another band"
+        chainsManager.splice(chain, 1, 3, target, 2)
+
+        then:
+        chain.bands*.atoms.id == [[atoms[1][0]], [atoms[2][0], atoms[0][0]]]
+        target.bands*.atoms.id == [targetAtoms[0], [targetAtoms[1][0], atoms[1][1], atoms[1][2], targetAtoms[1][1], targetAtoms[1][2]], targetAtoms[2]]
+        chainsManager.getAtom(target, atoms[1][1]) != null
+    }
+
+    void "a run spliced inside itself stays in place"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+
+        when:
+        chainsManager.splice(chain, 1, 4, chain, 2)
+
+        then:
+        chain.bands*.atoms.id == atoms
+
+        when: "placed after itself, a run is moved"
+        chainsManager.splice(chain, 0, 1, chain, 5)
+
+        then:
+        chain.bands*.atoms.id == [atoms[1], [atoms[2][0], atoms[0][0]]]
+    }
+
+    void "bands spliced into a chain are created empty and then filled"() {
+        given:
+        Chain chain = threeBandChain
+        Chain target = threeBandChain
+        List<Integer> createdSizes = []
+        int added = 0
+        ChainListener listener = {
+            it.each { ChainEvent e ->
+                if (e.type == ChainEvent.Type.BAND_CREATED) createdSizes.add(e.toBand.atoms.size())
+                if (e.type == ChainEvent.Type.ATOM_ADDED) added++
+            }
+        } as ChainListener
+        chainsManager.addChainListener(target, listener, false)
+
+        when:
+        chainsManager.splice(chain, 0, 4, target, 0)
+
+        then:
+        createdSizes == [0, 0]
+        added == 4
+        target.bands*.atoms.flatten().size() == 9
+
+        cleanup:
+        chainsManager.removeChainListener(target, listener)
+    }
+
+    void "atoms spliced into a chain get new ids if their ids are taken"() {
+        given:
+        Chain chain = threeBandChain
+        Chain target = threeBandChain
+        target.bands[1].atoms[0].id = chain.bands[1].atoms[0].id.toUpperCase()
+        Atom spliced = chain.bands[1].atoms[0]
+        String kept = chain.bands[1].atoms[1].id
+
+        when:
+        chainsManager.splice(chain, 1, 3, target, 0)
+
+        then:
+        target.bands*.atoms.flatten().size() == 7
+        target.bands*.atoms.flatten()*.id*.toLowerCase().unique().size() == 7
+        target.bands[0].atoms[0].is(spliced)
+        spliced.id != target.bands[2].atoms[0].id
+        chainsManager.getAtom(target, kept).is(target.bands[0].atoms[1])
+    }
+
+    void "forked chain reads atoms of its source until it's changed"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+
+        when:
+        Chain fork = chainsManager.fork(chain)
+
+        then:
+        fork.bands*.atoms.id == atoms
+        fork.bands*.type == chain.bands*.type
+        fork.bands.every { it.id != null }
+        fork.bands[1].atoms[0].is(chain.bands[1].atoms[0])
+
+        when: "changing a fork band gives it copies with the same ids"
+        chainsManager.moveInBand(fork, atoms[1][2], 0)
+        Atom copy = chainsManager.getAtom(fork, atoms[1][2])
+
+        then:
+        fork.bands[1].atoms.id == [atoms[1][2], atoms[1][0], atoms[1][1]]
+        !copy.is(chainsManager.getAtom(chain, atoms[1][2]))
+        copy.text == chainsManager.getAtom(chain, atoms[1][2]).text
+        fork.bands[0].atoms[0].is(chain.bands[0].atoms[0])
+        chain.bands*.atoms.id == atoms
+
+        when: "changing a copy leaves the source atom as is"
+        copy.text = "changed"
+
+        then:
+        chainsManager.getAtom(chain, atoms[1][2]).text == "a"
+
+        when: "changing the fork leaves the source as is"
+        chainsManager.removeAtom(fork, atoms[1][0])
+        chainsManager.moveAtom(fork, atoms[0][0], 10)
+
+        then:
+        fork.bands*.atoms.id == [[atoms[1][2], atoms[1][1]], [atoms[2][0], atoms[0][0]]]
+        chain.bands*.atoms.id == atoms
+
+        when: "changing the source leaves the fork as is"
+        chainsManager.removeAtom(chain, atoms[1][1])
+
+        then:
+        fork.bands*.atoms.id == [[atoms[1][2], atoms[1][1]], [atoms[2][0], atoms[0][0]]]
+        chain.bands*.atoms.id == [atoms[0], [atoms[1][0], atoms[1][2]], atoms[2]]
+    }
+
+    void "forks get copies of atoms before the source deletes them or a listener is registered"() {
+        given:
+        Chain chain = threeBandChain
+        Chain fork = chainsManager.fork(chain)
+        Chain listened = chainsManager.fork(fork)
+        Atom source = chain.bands[1].atoms[1]
+
+        when:
+        chainsManager.addChainListener(listened, { List<ChainEvent> events -> } as ChainListener, false)
+
+        then:
+        !listened.bands[1].atoms[1].is(source)
+        listened.bands[1].atoms[1].id == source.id
+        fork.bands[1].atoms[1].is(source)
+
+        when:
+        chainsManager.delete(chain)
+
+        then:
+        !fork.bands[1].atoms[1].is(source)
+        fork.bands[1].atoms[1].id == source.id
+        fork.bands*.atoms.flatten().every { Atom a -> !chain.bands*.atoms.flatten().any { it.is(a) } }
+    }
+
     private AtomPush getData() {
         new AtomPOJOPush(
                 title: "test text",
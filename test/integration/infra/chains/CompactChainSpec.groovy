@@ -0,0 +1,170 @@
+package infra.chains
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.Atom
+import infra.ca.AtomPush
+import infra.ca.AtomsManager
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.event.ChainListener
+import infra.chains.impl.CompactBandFactory
+import infra.chains.impl.CompactChain
+import infra.chains.impl.CompactChainFactory
+import infra.chains.impl.ChainsManagerImpl
+
+import java.lang.ref.WeakReference
+
+class CompactChainSpec extends IntegrationSpec {
+
+    AtomsManager atomsManager
+
+    ChainsManager compactManager
+
+    def setup() {
+        compactManager = new ChainsManagerImpl()
+        compactManager.atomsManager = atomsManager
+        compactManager.chainFactory = new CompactChainFactory()
+        compactManager.bandFactory = new CompactBandFactory()
+    }
+
+    void "compact chain is built and filled by chains manager"() {
+        when:
+        Chain chain = threeBandChain
+
+        then:
+        chain instanceof CompactChain
+        chain.bands*.atoms*.size() == [1, 3, 1]
+        chain.atomsCount == 5
+        chain.bands.every { it.id != null }
+    }
+
+    void "band views stay live while bands are moved and split"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<String>> atoms = chain.bands*.atoms.id
+        Band middle = chain.bands[1]
+
+        when: "moving to the end and back to split"
+        compactManager.moveAtom(chain, atoms[0][0], 10)
+        compactManager.moveAtom(chain, atoms[0][0], 1)
+
+        then:
+        chain.bands*.atoms.id == [[atoms[1][0]], [atoms[0][0]], [atoms[1][1], atoms[1][2]], [atoms[2][0]]]
+        chain.bands[0].is(middle)
+        middle.atoms*.id == [atoms[1][0]]
+
+        when: "removing the only atom detaches a band"
+        compactManager.removeAtom(chain, atoms[1][0])
+
+        then:
+        chain.bands*.atoms.id == [[atoms[0][0]], [atoms[1][1], atoms[1][2]], [atoms[2][0]]]
+        !chain.bands.contains(middle)
+        middle.atoms.empty
+        chain.atomsCount == 4
+    }
+
+    void "band atoms are replaced in place keeping the following bands"() {
+        given:
+        Chain chain = threeBandChain
+        List<List<Atom>> atoms = chain.bands*.atoms.collect { new ArrayList(it) }
+        Band middle = chain.bands[1]
+
+        when: "same size"
+        middle.atoms = atoms[1].reverse()
+
+        then:
+        chain.bands*.atoms == [atoms[0], atoms[1].reverse(), atoms[2]]
+
+        when: "shrinking"
+        middle.atoms = [atoms[1][2]]
+
+        then:
+        chain.bands*.atoms == [atoms[0], [atoms[1][2]], atoms[2]]
+        chain.atomsCount == 3
+
+        when: "growing"
+        middle.atoms = atoms[1] + atoms[1]
+
+        then:
+        chain.bands*.atoms == [atoms[0], atoms[1] + atoms[1], atoms[2]]
+        chain.atomsCount == 8
+    }
+
+    void "band added again to its own chain lands at the requested place"() {
+        given:
+        Chain chain = threeBandChain
+        List<Band> bands = new ArrayList(chain.bands)
+        List<List<String>> atoms = chain.bands*.atoms.id
+
+        when: "added before the last band"
+        chain.bands.add(2, bands[0])
+
+        then:
+        chain.bands == [bands[1], bands[0], bands[2]]
+        chain.bands*.atoms.id == [atoms[1], atoms[0], atoms[2]]
+
+        when: "added before the first band"
+        chain.bands.add(0, bands[2])
+
+        then:
+        chain.bands == [bands[2], bands[1], bands[0]]
+        chain.bands*.atoms.id == [atoms[2], atoms[1], atoms[0]]
+        chain.atomsCount == 5
+    }
+
+    void "compact chain copies bands of other implementations"() {
+        given:
+        Chain chain = new CompactChain()
+        Chain source = threeBandChain
+
+        when:
+        chain.bands = source.bands
+
+        then:
+        chain.bands*.id == source.bands*.id
+        chain.bands*.atoms.id == source.bands*.atoms.id
+    }
+
+    void "indexed compact chain is collected once it's dropped"() {
+        given:
+        WeakReference<Chain> ref = indexedChain()
+
+        when:
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc()
+            Thread.sleep(10)
+        }
+
+        then:
+        ref.get() == null
+    }
+
+    private WeakReference<Chain> indexedChain() {
+        Chain chain = threeBandChain
+        compactManager.getBandsByType(chain, chain.bands[0].type).next()
+        compactManager.addChainListener(chain, { events -> } as ChainListener, false)
+        new WeakReference<Chain>(chain)
+    }
+
+    private AtomPush getData() {
+        new AtomPOJOPush(
+                title: "test text",
+                text: "a"
+        )
+    }
+
+    private AtomPush getRuData() {
+        new AtomPOJOPush(
+                externalUrl: "http://russia.ru/video/diskurs_12854/"
+        )
+    }
+
+    private Chain getThreeBandChain() {
+        Chain chain = compactManager.buildChain()
+        compactManager.pushAtom(chain, ruData)
+        compactManager.pushAtom(chain, data)
+        compactManager.pushAtom(chain, data)
+        compactManager.pushAtom(chain, data)
+        compactManager.pushAtom(chain, ruData)
+        chain
+    }
+}
@@ -0,0 +1,128 @@
+package infra.chains.cluster
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.AtomsManager
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.BandFactory
+import infra.chains.Chain
+import infra.chains.ChainFactory
+import infra.chains.ChainsManager
+import infra.chains.impl.ChainsManagerImpl
+import infra.chains.impl.RoutingChainsManagerImpl
+
+class RoutingChainsManagerSpec extends IntegrationSpec {
+
+    AtomsManager atomsManager
+    ChainFactory chainFactory
+    BandFactory bandFactory
+
+    InProcessTransport transport = new InProcessTransport()
+    Map<String, RoutingChainsManagerImpl> nodes = [:]
+
+    def setup() {
+        ConsistentHash ring = new ConsistentHash().withNode("a").withNode("b")
+        ["a", "b"].each { String name ->
+            ChainsManager local = new ChainsManagerImpl()
+            local.atomsManager = atomsManager
+            local.chainFactory = chainFactory
+            local.bandFactory = bandFactory
+            RoutingChainsManagerImpl node = new RoutingChainsManagerImpl(local, name, transport, ring)
+            node.chainFactory = chainFactory
+            node.bandFactory = bandFactory
+            transport.register(name, node)
+            nodes[name] = node
+        }
+    }
+
+    void "mutations are applied by the owner and replicated"() {
+        given:
+        nodes.each { name, node -> node.register("doc", node.buildChain()) }
+        String other = nodes.a.getOwner("doc") == "a" ? "b" : "a"
+        RoutingChainsManagerImpl owner = nodes[nodes.a.getOwner("doc")]
+
+        when: "editing through a node that doesn't own a chain"
+        3.times { nodes[other].pushAtom(nodes[other].getChain("doc"), new AtomPOJOPush(title: "test text", text: "text $it")) }
+        Chain replica = nodes[other].getChain("doc")
+        nodes[other].moveAtom(replica, replica.bands[0].atoms[0].id, 3)
+
+        then:
+        owner.getChain("doc").bands*.id == replica.bands*.id
+        owner.getChain("doc").bands*.atoms.id == replica.bands*.atoms.id
+        replica.bands[0].atoms*.text == ["text 1", "text 2", "text 0"]
+    }
+
+    void "replicas keep their type index while changes are applied"() {
+        given:
+        nodes.each { name, node -> node.register("doc", node.buildChain()) }
+        String other = nodes.a.getOwner("doc") == "a" ? "b" : "a"
+        Chain replica = nodes[other].getChain("doc")
+        nodes[other].pushAtom(replica, new AtomPOJOPush(title: "test text", text: "text"))
+        String type = replica.bands[0].type
+
+        expect: "an index built before the changes"
+        nodes[other].getBandsByType(replica, type).collect { it.id } == [replica.bands[0].id]
+
+        when:
+        nodes[other].pushAtom(replica, new AtomPOJOPush(externalUrl: "http://russia.ru/video/diskurs_12854/"))
+        nodes[other].pushAtom(replica, new AtomPOJOPush(title: "test text", text: "text"))
+        nodes[other].moveBand(replica, replica.bands[2].id, 0)
+
+        then:
+        replica.bands.size() == 3
+        nodes[other].getBandsByType(replica, type).collect { it.id } == replica.bands.findAll { it.type == type }*.id
+    }
+
+    void "a chain handed over replaces a stale replica of its new owner"() {
+        given:
+        String ownerName = nodes.a.getOwner("doc")
+        String other = ownerName == "a" ? "b" : "a"
+        RoutingChainsManagerImpl owner = nodes[ownerName]
+        owner.register("doc", owner.buildChain())
+        3.times { owner.pushAtom(owner.getChain("doc"), new AtomPOJOPush(title: "test text", text: "text $it")) }
+        Chain replica = nodes[other].buildChain()
+        nodes[other].pushAtom(replica, new AtomPOJOPush(title: "test text", text: "stale"))
+        nodes[other].register("doc", replica)
+
+        when:
+        nodes[other].receive("doc", owner.getChain("doc"))
+
+        then:
+        nodes[other].getChain("doc").is(replica)
+        replica.bands*.id == owner.getChain("doc").bands*.id
+        replica.bands*.atoms.id == owner.getChain("doc").bands*.atoms.id
+    }
+
+    void "only chains with a new owner are handed over when a node joins"() {
+        given:
+        List<String> keys = (0..<50).collect { "doc$it" }
+        keys.each { key -> nodes.each { name, node -> node.register(key, node.buildChain()) } }
+        Map<String, String> before = keys.collectEntries { [it, nodes.a.getOwner(it)] }
+
+        when:
+        ConsistentHash ring = new ConsistentHash().withNode("a").withNode("b")
+        RoutingChainsManagerImpl c = new RoutingChainsManagerImpl(new ChainsManagerImpl(atomsManager: atomsManager, chainFactory: chainFactory, bandFactory: bandFactory), "c", transport, ring)
+        c.chainFactory = chainFactory
+        c.bandFactory = bandFactory
+        transport.register("c", c)
+        nodes.values()*.nodeJoined("c")
+
+        then:
+        keys.findAll { nodes.a.getOwner(it) != before[it] }.every { nodes.a.getOwner(it) == "c" && c.getChain(it) != null }
+        keys.findAll { nodes.a.getOwner(it) == before[it] }.every { c.getChain(it) == null }
+    }
+
+    void "a command forwarded too many times is rejected"() {
+        given:
+        nodes.each { name, node -> node.register("doc", node.buildChain()) }
+        String other = nodes.a.getOwner("doc") == "a" ? "b" : "a"
+        ChainCommand command = new ChainCommand("doc", ChainCommand.Operation.PUSH_ATOM,
+                [new ChainCommand.ChainRef("doc"), new AtomPOJOPush(title: "test text", text: "text")] as Object[])
+
+        when:
+        nodes[other].execute(command.forwarded().forwarded().forwarded())
+
+        then:
+        thrown(IllegalStateException)
+        nodes[other].getChain("doc").bands == null || nodes[other].getChain("doc").bands.empty
+    }
+}
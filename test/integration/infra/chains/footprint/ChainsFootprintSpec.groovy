@@ -0,0 +1,93 @@
+package infra.chains.footprint
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.Chain
+import infra.chains.ChainsManager
+import infra.chains.impl.CompactChain
+
+import javax.management.ObjectName
+import java.lang.management.ManagementFactory
+
+class ChainsFootprintSpec extends IntegrationSpec {
+
+    ChainsManager chainsManager
+    ChainsFootprint chainsFootprint
+
+    void "sampled estimation is close to the full one"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        40.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it")) }
+
+        when:
+        Footprint full = new FootprintEstimator(Integer.MAX_VALUE).estimate(chain)
+        Footprint sampled = new FootprintEstimator(8).estimate(chain)
+
+        then:
+        full.atoms == 40
+        full.bands == 1
+        full.largestBand == 40
+        !full.sampled
+        sampled.sampled
+        Math.abs(sampled.bytes - full.bytes) < full.bytes / 10
+    }
+
+    void "compact chains are estimated by their flat arrays"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        10.times {
+            chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it"))
+            chainsManager.pushAtom(chain, new AtomPOJOPush(externalUrl: "http://russia.ru/video/diskurs_12854/"))
+        }
+        CompactChain compact = new CompactChain()
+        compact.bands = chain.bands
+
+        when:
+        Footprint pojo = new FootprintEstimator().estimate(chain)
+        Footprint flat = new FootprintEstimator().estimate(compact)
+
+        then: "bands of a single atom cost less without a list of their own"
+        pojo.bands == 20
+        flat.bands == pojo.bands
+        flat.atoms == pojo.atoms
+        flat.bytes < pojo.bytes
+    }
+
+    void "changed chains are estimated again"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "a"))
+        long before = chainsFootprint.refresh()[chain].bytes
+
+        when:
+        chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "b"))
+
+        then:
+        chainsFootprint.refresh()[chain].atoms == 2
+        chainsFootprint.refresh()[chain].bytes > before
+        chainsFootprint.totalBytes > before
+        chainsFootprint.largestChains.length > 0
+    }
+
+    void "explicitly tracked chains are estimated without listening to a manager"() {
+        given:
+        ChainsFootprint footprint = new ChainsFootprint(null)
+        Chain chain = chainsManager.buildChain()
+        Chain copy = chainsManager.buildChain()
+        chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "a"))
+
+        when:
+        footprint.track(chain)
+        footprint.track(copy)
+
+        then:
+        footprint.chainsCount == 2
+        footprint.refresh()[chain].atoms == 1
+        footprint.refresh()[copy].atoms == 0
+    }
+
+    void "footprint is exposed via JMX"() {
+        expect:
+        ManagementFactory.platformMBeanServer.isRegistered(new ObjectName("infra.chains:type=ChainsFootprint"))
+    }
+}
@@ -0,0 +1,107 @@
+package infra.chains.json
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.Atom
+import infra.ca.AtomsManager
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.BandFactory
+import infra.chains.Chain
+import infra.chains.ChainFactory
+import infra.chains.ChainsManager
+
+class ChainJsonSpec extends IntegrationSpec {
+
+    ChainsManager chainsManager
+    AtomsManager atomsManager
+    ChainFactory chainFactory
+    BandFactory bandFactory
+
+    AtomSerializer serializer = new AtomSerializer() {
+        void write(Atom atom, JsonGenerator json) {
+            json.writeStartObject()
+            json.writeStringField("id", atom.id)
+            json.writeStringField("text", atom.text)
+            json.writeEndObject()
+        }
+
+        Atom read(JsonParser json) {
+            String id = null
+            AtomPOJOPush push = new AtomPOJOPush()
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.currentName
+                json.nextToken()
+                if (field == "id") id = json.text
+                else if (field == "text") push.text = json.text
+                else json.skipChildren()
+            }
+            Atom atom = atomsManager.build(push)
+            atom.id = id
+            atom
+        }
+    }
+
+    void "chain is written and read back"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        3.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it")) }
+        chainsManager.setBandStyle(chain, chain.bands[0].id, [align: "left"])
+        StringWriter writer = new StringWriter()
+
+        when:
+        new ChainJsonWriter(serializer).write(chain, writer)
+        Chain read = new ChainJsonReader(chainFactory, bandFactory, serializer).read(new ByteArrayInputStream(writer.toString().getBytes("UTF-8")))
+
+        then:
+        read.bands*.id == chain.bands*.id
+        read.bands*.type == chain.bands*.type
+        read.bands[0].styles == [align: "left"]
+        read.bands*.atoms.id == chain.bands*.atoms.id
+        read.bands[0].atoms*.text == ["text 0", "text 1", "text 2"]
+    }
+
+    void "unknown fields are skipped"() {
+        given:
+        String json = '{"version": [1, {"a": 2}], "bands": [{"id": "b", "extra": {"x": []}, "type": "markdown", "atoms": [{"id": "a", "text": "t", "more": [1]}]}]}'
+
+        when:
+        Chain read = new ChainJsonReader(chainFactory, bandFactory, serializer).read(new StringReader(json))
+
+        then:
+        read.bands*.id == ["b"]
+        read.bands[0].atoms*.id == ["a"]
+        read.bands[0].atoms*.text == ["t"]
+    }
+
+    void "failed writing and reading rethrow the failure and leave streams open"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        3.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it")) }
+        AtomSerializer failing = [
+                write: { Atom atom, JsonGenerator json ->
+                    if (atom.text == "text 1") throw new IOException("atom failed")
+                    serializer.write(atom, json)
+                },
+                read: { JsonParser json -> serializer.read(json) }
+        ] as AtomSerializer
+        StringWriter writer = new StringWriter()
+        StringReader reader = new StringReader('{"bands": [{"id": "b", "type": "markdown", "atoms": [{"id": "a"')
+
+        when:
+        new ChainJsonWriter(failing).write(chain, writer)
+
+        then:
+        IOException e = thrown()
+        e.message == "atom failed"
+        !writer.toString().endsWith("]}")
+
+        when:
+        new ChainJsonReader(chainFactory, bandFactory, serializer).read(reader)
+
+        then:
+        thrown(IOException)
+        reader.ready()
+    }
+}
@@ -0,0 +1,79 @@
+package infra.chains.load
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.AtomsManager
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.ChainsManager
+import infra.chains.impl.BandFactoryImpl
+import infra.chains.impl.ChainFactoryImpl
+import infra.chains.impl.ChainsManagerImpl
+
+import java.util.concurrent.TimeUnit
+
+class EditorLoadSimulatorSpec extends IntegrationSpec {
+
+    AtomsManager atomsManager
+
+    void "replays synthetic sessions from many threads"() {
+        given:
+        ChainsManager manager = new ChainsManagerImpl()
+        manager.atomsManager = new LatentAtomsManager(atomsManager, 10, 10, TimeUnit.MICROSECONDS)
+        manager.chainFactory = new ChainFactoryImpl()
+        manager.bandFactory = new BandFactoryImpl()
+
+        EditorLoadSimulator simulator = new EditorLoadSimulator(manager, { Random r ->
+            r.nextBoolean() ? new AtomPOJOPush(title: "test text", text: "a") : new AtomPOJOPush(externalUrl: "http://russia.ru/video/diskurs_12854/")
+        } as PushDataSource)
+        simulator.sessionsPerThread = 2
+        simulator.sessionLength = 50
+
+        when:
+        List<LoadReport> reports = simulator.sweep([10, 50] as int[], [1, 3] as int[])
+
+        then:
+        reports*.threads == [1, 3, 1, 3]
+        reports*.chainSize == [10, 10, 50, 50]
+        reports.every { r -> EditorOperation.values().sum { r.getCount(it) } > 0 }
+        reports.every { it.getLatency(EditorOperation.PUSH, 50) <= it.getLatency(EditorOperation.PUSH, 99.9) }
+    }
+
+    void "replays sessions of many threads against a shared chain"() {
+        given:
+        ChainsManager manager = new ChainsManagerImpl()
+        manager.atomsManager = atomsManager
+        manager.chainFactory = new ChainFactoryImpl()
+        manager.bandFactory = new BandFactoryImpl()
+
+        EditorLoadSimulator simulator = new EditorLoadSimulator(manager, { Random r ->
+            new AtomPOJOPush(title: "test text", text: "a" + r.nextInt(10))
+        } as PushDataSource)
+        simulator.sessionsPerThread = 2
+        simulator.sessionLength = 50
+        simulator.sharedChain = true
+
+        when:
+        LoadReport report = simulator.run(4, 30)
+
+        then:
+        report.sharedChain
+        report.threads == 4
+        EditorOperation.values().sum { report.getCount(it) } > 0
+    }
+
+    void "parses recorded sessions"() {
+        when:
+        EditorSession session = EditorSession.read(new StringReader("""
+# recorded session
+PUSH
+move 3 1
+STYLE 2
+REMOVE 0
+RENDER
+"""))
+
+        then:
+        session.steps*.operation == [EditorOperation.PUSH, EditorOperation.MOVE, EditorOperation.STYLE, EditorOperation.REMOVE, EditorOperation.RENDER]
+        session.steps[1].from == 3
+        session.steps[1].to == 1
+    }
+}
@@ -0,0 +1,76 @@
+package infra.chains.range
+
+import grails.plugin.spock.IntegrationSpec
+import infra.ca.Atom
+import infra.ca.impl.AtomPOJOPush
+import infra.chains.Chain
+import infra.chains.ChainsManager
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+
+class ChainRangeSpec extends IntegrationSpec {
+
+    ChainsManager chainsManager
+
+    void "atoms range is split on band boundaries"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        4.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it")) }
+        chainsManager.pushAtom(chain, new AtomPOJOPush(externalUrl: "http://russia.ru/video/diskurs_12854/"))
+        4.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "more $it")) }
+        ChainRange<Atom> range = ChainRange.atoms(chain)
+
+        expect:
+        chain.bands.size() == 3
+        range.size() == 9
+        range.collect { it.id } == chain.bands*.atoms.flatten().id
+
+        when:
+        ChainRange<Atom> prefix = range.trySplit()
+
+        then:
+        prefix.size() == 4
+        range.size() == 5
+        (prefix.collect { it.id } + range.collect { it.id }) == chain.bands*.atoms.flatten().id
+
+        when:
+        List<ChainRange> parts = ChainRange.atoms(chain).split(3)
+
+        then:
+        parts*.size() == [4, 1, 4]
+        ChainRange.bands(chain).split(3).collect { it.toList() } == chain.bands.collect { [it] }
+    }
+
+    void "linked atoms are read from a split inside a band"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        10.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it")) }
+        chain.bands[0].atoms = new LinkedList(chain.bands[0].atoms)
+        List<String> ids = chain.bands[0].atoms*.id
+
+        when:
+        List<ChainRange> parts = ChainRange.atoms(chain).split(3)
+
+        then:
+        parts.size() == 3
+        parts.collect { it.collect { it.id } }.flatten() == ids
+    }
+
+    void "atoms are visited with a pool"() {
+        given:
+        Chain chain = chainsManager.buildChain()
+        100.times { chainsManager.pushAtom(chain, new AtomPOJOPush(title: "test text", text: "text $it")) }
+        Set<String> visited = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>())
+        ForkJoinPool pool = new ForkJoinPool(4)
+
+        when:
+        ChainRange.atoms(chain).forEach(pool, { Atom atom -> visited.add(atom.id) } as RangeVisitor)
+
+        then:
+        visited == chain.bands*.atoms.flatten().id as Set
+
+        cleanup:
+        pool.shutdown()
+    }
+}